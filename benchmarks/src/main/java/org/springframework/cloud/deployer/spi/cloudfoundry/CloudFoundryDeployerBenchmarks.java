@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.core.AppDefinition;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.cloud.deployer.spi.task.TaskStatus;
+import org.springframework.core.io.FileSystemResource;
+
+/**
+ * Measures the hot paths of {@link CloudFoundryAppDeployer} and {@link CloudFoundryTaskLauncher} against a
+ * {@link CloudControllerSimulator} answering after {@link #latency} ms.
+ *
+ * <p>Throughput and latency percentiles are reported by the two benchmark modes. For allocation rates, run with the
+ * GC profiler: {@code java -jar target/benchmarks.jar -prof gc}.</p>
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CloudFoundryDeployerBenchmarks {
+
+	/**
+	 * Simulated latency (in ms) of every Cloud Foundry API call.
+	 */
+	@Param({"0", "5"})
+	public long latency;
+
+	/**
+	 * Size (in bytes) of the uploaded artifact.
+	 */
+	@Param({"1048576"})
+	public int artifactSize;
+
+	private File artifact;
+
+	private CloudFoundryAppDeployer appDeployer;
+
+	private CloudFoundryTaskLauncher taskLauncher;
+
+	private AppDeploymentRequest request;
+
+	@Setup
+	public void setUp() throws IOException {
+		byte[] bits = new byte[artifactSize];
+		new Random(0).nextBytes(bits);
+		artifact = File.createTempFile("benchmark", ".jar");
+		Files.write(artifact.toPath(), bits);
+
+		CloudControllerSimulator cloudFoundry = new CloudControllerSimulator().latency(Duration.ofMillis(latency));
+		CloudFoundryDeployerProperties properties = new CloudFoundryDeployerProperties();
+		properties.setDomain("example.com");
+		appDeployer = new CloudFoundryAppDeployer(properties, cloudFoundry.operations());
+		taskLauncher = new CloudFoundryTaskLauncher(cloudFoundry.client(), properties);
+		Map<String, String> environment = new HashMap<>();
+		environment.put(AppDeployer.GROUP_PROPERTY_KEY, "group");
+		environment.put("organization", "org");
+		environment.put("space", "space");
+		request = new AppDeploymentRequest(new AppDefinition("app", Collections.singletonMap("foo", "bar")),
+			new FileSystemResource(artifact), environment);
+
+		// so that there is something to report the status of
+		appDeployer.asyncDeploy(request).get();
+		taskLauncher.asyncLaunch(request).get();
+	}
+
+	@TearDown
+	public void tearDown() {
+		appDeployer.destroy();
+		taskLauncher.destroy();
+		artifact.delete();
+	}
+
+	@Benchmark
+	public void appDeployerAsyncDeploy() {
+		appDeployer.asyncDeploy(request).get();
+	}
+
+	@Benchmark
+	public AppStatus appDeployerAsyncStatus() {
+		return appDeployer.asyncStatus("group-app").get();
+	}
+
+	@Benchmark
+	public String taskLauncherAsyncLaunch() {
+		return taskLauncher.asyncLaunch(request).get();
+	}
+
+	@Benchmark
+	public TaskStatus taskLauncherAsyncStatus() {
+		return taskLauncher.asyncStatus("app").get();
+	}
+}
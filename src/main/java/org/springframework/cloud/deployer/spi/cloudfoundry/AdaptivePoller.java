@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Polls for the completion of some processing on Cloud Foundry (such as package processing or staging), learning
+ * from previous runs how long that processing typically takes for an artifact of a given size.
+ *
+ * <p>Durations are tracked per order of magnitude (power of two) of the artifact size as an exponentially weighted
+ * moving average. A first poll is scheduled halfway through the expected processing time, so that the average can
+ * also learn that processing got faster, then one right when processing is expected to be done, followed by tight
+ * polls (a tenth of the expected time apart) until twice the expected time, and then an exponential back off. When
+ * nothing is known yet, polling backs off exponentially from the minimum delay.</p>
+ *
+ * @author agent
+ */
+class AdaptivePoller {
+
+	/**
+	 * Weight of the latest observation in the moving average.
+	 */
+	private static final double ALPHA = 0.3;
+
+	private final long minDelay;
+
+	private final long maxDelay;
+
+	private final long timeout;
+
+	private final int maxAttempts;
+
+	private final Map<Integer, Double> expectedBySize = new ConcurrentHashMap<>();
+
+	/**
+	 * @param minDelay the minimum delay (in ms) between two polls
+	 * @param maxDelay the maximum delay (in ms) between two polls
+	 * @param timeout how long (in ms) to keep polling before giving up
+	 * @param maxAttempts the maximum number of polls
+	 */
+	AdaptivePoller(long minDelay, long maxDelay, long timeout, int maxAttempts) {
+		this.minDelay = minDelay;
+		this.maxDelay = maxDelay;
+		this.timeout = timeout;
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Repeatedly subscribe to the given check until it emits a value, recording how long that took.
+	 *
+	 * @param size the size of the artifact being processed, or a negative value if unknown
+	 * @param check a {@link Mono} that is empty while processing is not complete
+	 */
+	public <T> Mono<T> poll(long size, Mono<T> check) {
+		return Mono.defer(() -> {
+			long start = System.currentTimeMillis();
+			long expected = expected(size);
+			return check
+				.repeatWhenEmpty(maxAttempts, delays(start, expected))
+				.doOnSuccess(t -> record(size, System.currentTimeMillis() - start));
+		});
+	}
+
+	/**
+	 * Return the expected processing time (in ms) for an artifact of the given size, or -1 if unknown.
+	 */
+	long expected(long size) {
+		Double expected = expectedBySize.get(bucket(size));
+		return expected == null ? -1L : expected.longValue();
+	}
+
+	void record(long size, long duration) {
+		expectedBySize.merge(bucket(size), (double) duration, (previous, latest) -> previous + ALPHA * (latest - previous));
+	}
+
+	/**
+	 * Compute how long to wait before the next poll.
+	 *
+	 * @param attempt the number of polls already made (starting at 0)
+	 * @param elapsed time (in ms) since polling started
+	 * @param expected the expected processing time (in ms), or -1 if unknown
+	 */
+	long delay(long attempt, long elapsed, long expected) {
+		long delay;
+		if (expected < 0) {
+			delay = backOff(attempt);
+		}
+		else if (elapsed < expected / 2) {
+			delay = expected / 2 - elapsed;
+		}
+		else if (elapsed < expected) {
+			delay = expected - elapsed;
+		}
+		else if (elapsed < 2 * expected) {
+			delay = expected / 10;
+		}
+		else {
+			delay = backOff(attempt);
+		}
+		return Math.max(minDelay, Math.min(maxDelay, delay));
+	}
+
+	private long backOff(long attempt) {
+		long delay = minDelay;
+		for (long i = 0; i < attempt && delay < maxDelay; i++) {
+			delay *= 2;
+		}
+		return delay;
+	}
+
+	private Function<Flux<Long>, Publisher<?>> delays(long start, long expected) {
+		return iterations -> iterations
+			.flatMap(attempt -> {
+				long elapsed = System.currentTimeMillis() - start;
+				if (elapsed > timeout) {
+					return Mono.<Long>error(new IllegalStateException(String.format("Gave up polling after %d ms", elapsed)));
+				}
+				return Mono.delay(Duration.ofMillis(delay(attempt, elapsed, expected)));
+			});
+	}
+
+	private static int bucket(long size) {
+		return size <= 0 ? -1 : 63 - Long.numberOfLeadingZeros(size);
+	}
+}
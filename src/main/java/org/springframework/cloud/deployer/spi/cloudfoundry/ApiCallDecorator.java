@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Wraps each call made to the Cloud Foundry API by the deployer and the task launcher: every attempt is timed by
+ * {@link CloudFoundryApiMetrics}, then, when configured, paced by a {@link RequestGovernor}, failed fast by a
+ * {@link CircuitBreaker} while Cloud Foundry is down, and retried on transient errors as an {@link ApiRetryPolicy}
+ * allows.
+ *
+ * <p>Deployers sharing an instance share its rate limit and circuit.</p>
+ *
+ * @author agent
+ */
+public class ApiCallDecorator {
+
+	private final CloudFoundryApiMetrics metrics;
+
+	/**
+	 * Paces the calls, or {@literal null} to let them all through.
+	 */
+	private final RequestGovernor governor;
+
+	/**
+	 * Tells which calls to retry, or {@literal null} to retry none.
+	 */
+	private final ApiRetryPolicy retryPolicy;
+
+	/**
+	 * Fails calls fast while the controller is down, or {@literal null} to always call it.
+	 */
+	private final CircuitBreaker circuitBreaker;
+
+	/**
+	 * Create a decorator that only times calls.
+	 */
+	public ApiCallDecorator(CloudFoundryApiMetrics metrics) {
+		this(metrics, null, null, null);
+	}
+
+	/**
+	 * Create a decorator that also paces calls and holds them back when Cloud Foundry pushes back, retries idempotent
+	 * calls that fail with transient errors and fails calls fast while Cloud Foundry is down, as configured by the
+	 * given properties.
+	 */
+	public ApiCallDecorator(CloudFoundryApiMetrics metrics, CloudFoundryDeployerProperties properties) {
+		this(metrics,
+			new RequestGovernor(properties.getApiRateLimit(), properties.getApiRateLimitBurst(),
+				properties.getApiThrottleMaxAttempts()),
+			new ApiRetryPolicy(properties.getApiRetryMaxAttempts(), properties.getApiRetryMaxAttemptsByOperation(),
+				properties.getApiRetryBackOff()),
+			properties.getApiCircuitBreakerFailureThreshold() > 0
+				? new CircuitBreaker(properties.getApiCircuitBreakerFailureThreshold(),
+					properties.getApiCircuitBreakerOpenTimeout())
+				: null);
+	}
+
+	ApiCallDecorator(CloudFoundryApiMetrics metrics, RequestGovernor governor, ApiRetryPolicy retryPolicy,
+			CircuitBreaker circuitBreaker) {
+		this.metrics = metrics;
+		this.governor = governor;
+		this.retryPolicy = retryPolicy;
+		this.circuitBreaker = circuitBreaker;
+		if (governor != null) {
+			metrics.gauge("api.governor.rate", governor::getRate);
+			metrics.gauge("api.governor.waiting", governor::getWaiting);
+			metrics.gauge("api.throttled.count", governor::getThrottled);
+			metrics.gauge("api.throttled.time", governor::getThrottledTime);
+		}
+		if (circuitBreaker != null) {
+			metrics.gauge("api.circuitBreaker.open", () -> circuitBreaker.isOpen() ? 1 : 0);
+			metrics.gauge("api.circuitBreaker.rejected", circuitBreaker::getRejected);
+		}
+	}
+
+	/**
+	 * Return the metrics each attempt is recorded in.
+	 */
+	public CloudFoundryApiMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Time the given call, each time it is subscribed to. If calls are governed, it is only subscribed to once
+	 * admitted, and subscribed to again when throttled. It is also subscribed to again when it fails with a transient
+	 * error, if the retry policy allows, and not at all while the circuit breaker is open.
+	 *
+	 * @param operation the name to record the call under
+	 */
+	public <T> Mono<T> decorate(String operation, Mono<T> call) {
+		Mono<T> timed = metrics.timed(operation, call);
+		Mono<T> governed = governor == null ? timed : governor.govern(timed);
+		Mono<T> guarded = circuitBreaker == null ? governed : circuitBreaker.guard(governed);
+		int maxAttempts = retryPolicy == null ? 1 : retryPolicy.maxAttempts(operation);
+		if (maxAttempts <= 1) {
+			return guarded;
+		}
+		return guarded.retryWhen(Retries.withJitter(maxAttempts, retryPolicy.getBackOff(), this::isRetryable,
+			() -> metrics.increment("api." + operation + ".retries")));
+	}
+
+	/**
+	 * Time the given call, up to its last element, each time it is subscribed to. If calls are governed, it is only
+	 * subscribed to once admitted, and subscribed to again when throttled. It is also subscribed to again when it fails
+	 * with a transient error before emitting anything, if the retry policy allows, and not at all while the circuit
+	 * breaker is open.
+	 *
+	 * @param operation the name to record the call under
+	 */
+	public <T> Flux<T> decorate(String operation, Flux<T> call) {
+		Flux<T> timed = metrics.timed(operation, call);
+		Flux<T> governed = governor == null ? timed : governor.govern(timed);
+		Flux<T> guarded = circuitBreaker == null ? governed : circuitBreaker.guard(governed);
+		int maxAttempts = retryPolicy == null ? 1 : retryPolicy.maxAttempts(operation);
+		if (maxAttempts <= 1) {
+			return guarded;
+		}
+		return Flux.defer(() -> {
+			// retrying after some elements went through would emit them twice
+			AtomicBoolean emitted = new AtomicBoolean();
+			return guarded
+				.doOnNext(t -> emitted.set(true))
+				.retryWhen(errors -> Retries.withJitter(maxAttempts, retryPolicy.getBackOff(), this::isRetryable,
+					() -> metrics.increment("api." + operation + ".retries"))
+					.apply(errors.flatMap(e -> emitted.get() ? Flux.<Throwable>error(e) : Flux.just(e))));
+		});
+	}
+
+	/**
+	 * Tell whether the retry policy should retry a failed call. Calls throttled by Cloud Foundry are left to the
+	 * governor, if any, which already queues them again up to its own maximum number of attempts.
+	 */
+	boolean isRetryable(Throwable e) {
+		return Retries.isTransient(e) && (governor == null || !RequestGovernor.isThrottled(e));
+	}
+}
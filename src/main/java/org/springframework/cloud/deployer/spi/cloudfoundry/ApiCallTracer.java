@@ -0,0 +1,36 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+/**
+ * Receives a span for each sampled call made to the Cloud Foundry API.
+ *
+ * @author agent
+ * @see CloudFoundryApiMetrics
+ */
+public interface ApiCallTracer {
+
+	/**
+	 * Called once a sampled call has completed.
+	 *
+	 * @param operation the name of the pipeline stage, such as {@code createTask}
+	 * @param outcome {@code success}, {@code client_error}, {@code server_error} or {@code error}
+	 * @param startTime when the call was subscribed to, in ms since the epoch
+	 * @param durationNanos how long the call took
+	 */
+	void span(String operation, String outcome, long startTime, long durationNanos);
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tells how many times each operation on the Cloud Foundry API may be attempted when it fails with a transient error
+ * (see {@link Retries#isTransient(Throwable)}). When calls are governed, those Cloud Foundry throttled are left to the
+ * {@link RequestGovernor}, which queues them again on its own.
+ *
+ * <p>Only operations that can safely be repeated are ever retried. Creating an application, a package, a droplet or
+ * a task is not, nor is binding a service (which {@link ServiceBinder} retries on its own terms). Pushes and uploads
+ * are, as long as they open the application bits anew on each attempt: Cloud Foundry has no way to resume an upload,
+ * so a retry sends all the bits again.</p>
+ *
+ * @author agent
+ */
+class ApiRetryPolicy {
+
+	/**
+	 * The operations safe to repeat, by the names they are timed under.
+	 */
+	static final Set<String> IDEMPOTENT_OPERATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+		"status", "listApplications", "listServiceInstances", "listSpaces", "listDroplets", "listTasks", "getDroplet",
+		"getPackage", "setEnvironment", "start", "delete", "deleteApplication", "cancelTask", "push", "upload")));
+
+	private final int maxAttempts;
+
+	private final Map<String, Integer> maxAttemptsByOperation;
+
+	private final long backOff;
+
+	/**
+	 * @param maxAttempts the maximum number of attempts at an idempotent operation, including the first one
+	 * @param maxAttemptsByOperation overrides of {@code maxAttempts} for some operations
+	 * @param backOff the base delay (in ms) between attempts
+	 */
+	ApiRetryPolicy(int maxAttempts, Map<String, Integer> maxAttemptsByOperation, long backOff) {
+		this.maxAttempts = maxAttempts;
+		this.maxAttemptsByOperation = new HashMap<>(maxAttemptsByOperation);
+		this.backOff = backOff;
+	}
+
+	/**
+	 * Return the maximum number of attempts at the given operation, 1 meaning it is not retried.
+	 */
+	public int maxAttempts(String operation) {
+		if (!IDEMPOTENT_OPERATIONS.contains(operation)) {
+			return 1;
+		}
+		return Math.max(1, maxAttemptsByOperation.getOrDefault(operation, maxAttempts));
+	}
+
+	public long getBackOff() {
+		return backOff;
+	}
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Keeps local copies of remote application artifacts, so that they are downloaded once rather than on each deployment.
+ *
+ * <p>Artifacts are stored in a directory, in a file named after the digests of their location and of their content.
+ * The location includes the last modification time the resource reports, if any, so that an artifact changed at the
+ * same URL is downloaded again. Once the files take more than a maximum number of bytes, the least recently used are
+ * deleted. Files left by a previous run are picked up again.</p>
+ *
+ * <p>Resources already backed by a file are used as is, and so are those without a URI. When several deployments need
+ * the same artifact at once, it is only downloaded by the first one, which the others wait for.</p>
+ *
+ * @author agent
+ */
+class ArtifactCache {
+
+	private static final Log logger = LogFactory.getLog(ArtifactCache.class);
+
+	private static final Pattern FILE_NAME = Pattern.compile("([0-9a-f]{40})-([0-9a-f]{40})");
+
+	private static final String DOWNLOAD_SUFFIX = ".download";
+
+	/**
+	 * How long (in ms) a download may go without being written to before it is considered abandoned.
+	 */
+	private static final long STALE_DOWNLOAD_AGE = TimeUnit.HOURS.toMillis(1);
+
+	private final Path directory;
+
+	private final long maxSize;
+
+	/**
+	 * Cached artifacts by location digest, least recently used first.
+	 */
+	private final LinkedHashMap<String, CachedArtifact> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long size;
+
+	/**
+	 * Downloads in progress, by location digest.
+	 */
+	private final ConcurrentMap<String, CompletableFuture<CachedArtifact>> downloads = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param directory where to keep the artifacts, created if needed
+	 * @param maxSize the number of bytes the artifacts may take before the least recently used are deleted
+	 */
+	ArtifactCache(Path directory, long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		try {
+			Files.createDirectories(directory);
+			load();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not use " + directory + " to cache artifacts", e);
+		}
+	}
+
+	/**
+	 * Create the artifact cache configured by the given properties, in a sub directory of its own.
+	 *
+	 * @return the cache, or {@literal null} if disabled
+	 */
+	static ArtifactCache create(CloudFoundryDeployerProperties properties, String name) {
+		if (properties.getArtifactCacheMaxSize() <= 0) {
+			return null;
+		}
+		Path directory = properties.getArtifactCacheDirectory() != null
+			? Paths.get(properties.getArtifactCacheDirectory())
+			: Paths.get(System.getProperty("java.io.tmpdir"), "spring-cloud-deployer-cloudfoundry");
+		return new ArtifactCache(directory.resolve(name), properties.getArtifactCacheMaxSize());
+	}
+
+	/**
+	 * Return a local copy of the given artifact, downloading it first if needed. Asks the resource for its last
+	 * modification time, which takes a request for remote resources, so callers should resolve an artifact once per
+	 * deployment.
+	 */
+	public Resource resolve(Resource resource) throws IOException {
+		String location = location(resource);
+		if (location == null) {
+			return resource;
+		}
+		String key = ResourceDigests.digest(location);
+		CachedArtifact cached = cached(key);
+		if (cached != null) {
+			return cached;
+		}
+		CompletableFuture<CachedArtifact> download = new CompletableFuture<>();
+		CompletableFuture<CachedArtifact> inProgress = downloads.putIfAbsent(key, download);
+		if (inProgress != null) {
+			hits.increment();
+			return await(inProgress);
+		}
+		try {
+			// another download may have completed in between
+			cached = cached(key);
+			if (cached == null) {
+				misses.increment();
+				cached = download(key, resource);
+			}
+			download.complete(cached);
+		}
+		catch (IOException | RuntimeException e) {
+			download.completeExceptionally(e);
+		}
+		finally {
+			downloads.remove(key, download);
+		}
+		return await(download);
+	}
+
+	/**
+	 * Return the number of bytes the cached artifacts take.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public synchronized int getCount() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	private synchronized CachedArtifact cached(String key) {
+		CachedArtifact cached = entries.get(key);
+		if (cached != null && cached.exists()) {
+			hits.increment();
+			return cached;
+		}
+		return null;
+	}
+
+	private CachedArtifact download(String key, Resource resource) throws IOException {
+		long start = System.currentTimeMillis();
+		Path temp = Files.createTempFile(directory, key, DOWNLOAD_SUFFIX);
+		try {
+			String digest;
+			try (DigestInputStream in = ResourceDigests.digestingStream(resource.getInputStream())) {
+				Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+				digest = ResourceDigests.toHex(in.getMessageDigest());
+			}
+			Path file = directory.resolve(key + "-" + digest);
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			CachedArtifact artifact = new CachedArtifact(file.toFile(), digest);
+			logger.info(String.format("Downloaded %s (%d bytes) in %d ms", resource, artifact.getFile().length(),
+				System.currentTimeMillis() - start));
+			add(key, artifact);
+			return artifact;
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private synchronized void add(String key, CachedArtifact artifact) {
+		CachedArtifact previous = entries.put(key, artifact);
+		if (previous != null) {
+			size -= previous.length;
+			if (!previous.getFile().equals(artifact.getFile())) {
+				delete(previous);
+			}
+		}
+		size += artifact.length;
+		for (Iterator<Map.Entry<String, CachedArtifact>> it = entries.entrySet().iterator(); size > maxSize && it.hasNext(); ) {
+			Map.Entry<String, CachedArtifact> entry = it.next();
+			if (!entry.getKey().equals(key)) {
+				size -= entry.getValue().length;
+				delete(entry.getValue());
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Pick up the artifacts left in the directory, oldest first, then trim them to size. Downloads that were
+	 * interrupted are deleted, but not those still being written to, as another process may share the directory.
+	 */
+	private void load() throws IOException {
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				String name = file.getFileName().toString();
+				if (FILE_NAME.matcher(name).matches()) {
+					files.add(file);
+				}
+				else if (name.endsWith(DOWNLOAD_SUFFIX) && isStale(file)) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+		files.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+		for (Path file : files) {
+			Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+			matcher.matches();
+			add(matcher.group(1), new CachedArtifact(file.toFile(), matcher.group(2)));
+		}
+	}
+
+	private static boolean isStale(Path download) throws IOException {
+		return System.currentTimeMillis() - Files.getLastModifiedTime(download).toMillis() > STALE_DOWNLOAD_AGE;
+	}
+
+	private static void delete(CachedArtifact artifact) {
+		try {
+			Files.deleteIfExists(artifact.getFile().toPath());
+		}
+		catch (IOException e) {
+			logger.warn(String.format("Could not delete cached artifact %s", artifact.getFile()), e);
+		}
+	}
+
+	private static CachedArtifact await(CompletableFuture<CachedArtifact> download) throws IOException {
+		try {
+			return download.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Return the location of the given resource, with its last modification time if it has one.
+	 *
+	 * @return the location, or {@literal null} if the resource is a file already or has no location to tell it apart
+	 */
+	private static String location(Resource resource) {
+		if (isFile(resource)) {
+			return null;
+		}
+		String location;
+		try {
+			location = resource.getURI().toString();
+		}
+		catch (IOException e) {
+			return null;
+		}
+		long lastModified;
+		try {
+			lastModified = resource.lastModified();
+		}
+		catch (IOException e) {
+			lastModified = 0L;
+		}
+		return location + "@" + lastModified;
+	}
+
+	private static boolean isFile(Resource resource) {
+		try {
+			File file = resource.getFile();
+			return file.isFile();
+		}
+		catch (IOException | UnsupportedOperationException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * A local copy of an artifact, which knows the digest of its content.
+	 */
+	static class CachedArtifact extends FileSystemResource {
+
+		private final String digest;
+
+		private final long length;
+
+		CachedArtifact(File file, String digest) {
+			super(file);
+			this.digest = digest;
+			this.length = file.length();
+		}
+
+		/**
+		 * Return the digest of the content, as given by {@link ResourceDigests#digest(Resource)}.
+		 */
+		public String getDigest() {
+			return digest;
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Fails calls to the Cloud Controller fast while it looks down, instead of letting them pile up.
+ *
+ * <p>The breaker opens after a number of consecutive calls failed with a server error or could not reach the
+ * controller at all. While open, calls fail right away with an {@link IllegalStateException}. Once the open timeout
+ * is over a single trial call is let through: the breaker closes if the controller answers it, and opens again
+ * otherwise.</p>
+ *
+ * @author agent
+ */
+class CircuitBreaker {
+
+	private static final Log logger = LogFactory.getLog(CircuitBreaker.class);
+
+	private final int failureThreshold;
+
+	private final long openTimeout;
+
+	private final LongSupplier clock;
+
+	private int failures;
+
+	/**
+	 * When the breaker opened, or -1 if it is closed.
+	 */
+	private long openedAt = -1L;
+
+	private boolean trialInFlight;
+
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * @param failureThreshold the number of consecutive failures that open the breaker
+	 * @param openTimeout how long (in ms) the breaker stays open before letting a trial call through
+	 */
+	CircuitBreaker(int failureThreshold, long openTimeout) {
+		this(failureThreshold, openTimeout, System::currentTimeMillis);
+	}
+
+	CircuitBreaker(int failureThreshold, long openTimeout, LongSupplier clock) {
+		this.failureThreshold = failureThreshold;
+		this.openTimeout = openTimeout;
+		this.clock = clock;
+	}
+
+	/**
+	 * Let the given call through, each time it is subscribed to, unless the breaker is open.
+	 */
+	public <T> Mono<T> guard(Mono<T> call) {
+		return Mono.defer(() -> {
+			if (!tryAcquire()) {
+				return Mono.error(rejection());
+			}
+			return call
+				.doOnSuccess(t -> onSuccess())
+				.doOnError(this::onFailure)
+				.doOnCancel(this::onCancel);
+		});
+	}
+
+	/**
+	 * Let the given call through, each time it is subscribed to, unless the breaker is open.
+	 */
+	public <T> Flux<T> guard(Flux<T> call) {
+		return Flux.defer(() -> {
+			if (!tryAcquire()) {
+				return Flux.error(rejection());
+			}
+			return call
+				.doOnComplete(this::onSuccess)
+				.doOnError(this::onFailure)
+				.doOnCancel(this::onCancel);
+		});
+	}
+
+	public synchronized boolean isOpen() {
+		return openedAt >= 0;
+	}
+
+	/**
+	 * Return the number of calls failed fast because the breaker was open.
+	 */
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	synchronized boolean tryAcquire() {
+		if (openedAt < 0) {
+			return true;
+		}
+		if (!trialInFlight && clock.getAsLong() - openedAt >= openTimeout) {
+			trialInFlight = true;
+			return true;
+		}
+		rejected.increment();
+		return false;
+	}
+
+	synchronized void onSuccess() {
+		if (openedAt >= 0) {
+			logger.info("Cloud Controller answered again, closing the circuit breaker");
+		}
+		failures = 0;
+		openedAt = -1L;
+		trialInFlight = false;
+	}
+
+	synchronized void onFailure(Throwable e) {
+		if (!isFailure(e)) {
+			if (e instanceof HttpStatusCodeException) {
+				// the controller answered, so it is up
+				onSuccess();
+			}
+			else {
+				trialInFlight = false;
+			}
+			return;
+		}
+		failures++;
+		if (trialInFlight || (openedAt < 0 && failures >= failureThreshold)) {
+			logger.warn(String.format("%d consecutive calls to the Cloud Controller failed, failing calls fast for %d ms",
+				failures, openTimeout));
+			openedAt = clock.getAsLong();
+			trialInFlight = false;
+		}
+	}
+
+	private synchronized void onCancel() {
+		trialInFlight = false;
+	}
+
+	private IllegalStateException rejection() {
+		return new IllegalStateException(String.format(
+			"The Cloud Controller looks down after %d consecutive failures, not calling it for now", failureThreshold));
+	}
+
+	/**
+	 * Tell whether a failed call hints the controller is down: it answered with a server error other than a request
+	 * to slow down, or could not be reached.
+	 */
+	static boolean isFailure(Throwable e) {
+		if (e instanceof HttpStatusCodeException) {
+			return ((HttpStatusCodeException) e).getStatusCode().is5xxServerError() && !RequestGovernor.isThrottled(e);
+		}
+		return e instanceof ResourceAccessException;
+	}
+}
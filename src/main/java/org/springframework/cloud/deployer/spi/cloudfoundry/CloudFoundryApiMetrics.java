@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.web.client.HttpStatusCodeException;
+
+/**
+ * Records timings of the calls made to the Cloud Foundry API by the deployer and the task launcher.
+ *
+ * <p>Each call is timed from subscription to completion under an operation name (such as {@code push} or
+ * {@code createTask}) and tagged with its outcome: {@code success}, {@code client_error} and {@code server_error}
+ * for HTTP 4xx and 5xx responses, or {@code error} for anything else. Deployers can also register gauges for their
+ * own state. Everything is exposed as a flat map of metric names to values by {@link #snapshot()}, which is what the
+ * autoconfiguration publishes when Spring Boot Actuator is around.</p>
+ *
+ * <p>A fraction of the calls can also be handed to an {@link ApiCallTracer}, one span per call. Whether a call is
+ * traced is decided when it is subscribed to; with a sample rate of 0 (the default) tracing costs nothing.</p>
+ *
+ * @author agent
+ */
+public class CloudFoundryApiMetrics {
+
+	public static final String PREFIX = "cloudfoundry.";
+
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+	/**
+	 * Number of calls subscribed to and not yet complete, each of which holds an HTTP connection.
+	 */
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	private final ApiCallTracer tracer;
+
+	private final double traceSampleRate;
+
+	public CloudFoundryApiMetrics() {
+		this(new LoggingApiCallTracer(), 0.0);
+	}
+
+	/**
+	 * @param tracer receives the sampled spans
+	 * @param traceSampleRate the fraction of calls to trace, between 0 (none) and 1 (all)
+	 */
+	public CloudFoundryApiMetrics(ApiCallTracer tracer, double traceSampleRate) {
+		this.tracer = tracer;
+		this.traceSampleRate = traceSampleRate;
+		gauge("api.inFlight", inFlight::get);
+		gauge("api.inFlight.max", maxInFlight::get);
+	}
+
+	/**
+	 * Time the given call, each time it is subscribed to.
+	 *
+	 * @param operation the name to record the call under
+	 */
+	public <T> Mono<T> timed(String operation, Mono<T> call) {
+		return Mono.defer(() -> {
+			long startTime = sampled() ? System.currentTimeMillis() : -1L;
+			long start = System.nanoTime();
+			start();
+			return call
+				.doOnSuccess(t -> record(operation, "success", startTime, start))
+				.doOnError(e -> record(operation, outcome(e), startTime, start))
+				.doOnCancel(inFlight::decrementAndGet);
+		});
+	}
+
+	/**
+	 * Time the given call, up to its last element, each time it is subscribed to.
+	 *
+	 * @param operation the name to record the call under
+	 */
+	public <T> Flux<T> timed(String operation, Flux<T> call) {
+		return Flux.defer(() -> {
+			long startTime = sampled() ? System.currentTimeMillis() : -1L;
+			long start = System.nanoTime();
+			start();
+			return call
+				.doOnComplete(() -> record(operation, "success", startTime, start))
+				.doOnError(e -> record(operation, outcome(e), startTime, start))
+				.doOnCancel(inFlight::decrementAndGet);
+		});
+	}
+
+	/**
+	 * Register a value to be read each time a snapshot is taken.
+	 *
+	 * @param name the metric name, without the common prefix
+	 */
+	public void gauge(String name, Supplier<? extends Number> value) {
+		gauges.put(PREFIX + name, value);
+	}
+
+	/**
+	 * Count one occurrence of something, such as a retry.
+	 *
+	 * @param name the metric name, without the common prefix
+	 */
+	public void increment(String name) {
+		counters.computeIfAbsent(PREFIX + name, n -> new LongAdder()).increment();
+	}
+
+	/**
+	 * Count an amount of something, such as bytes uploaded.
+	 *
+	 * @param name the metric name, without the common prefix
+	 */
+	public void increment(String name, long amount) {
+		counters.computeIfAbsent(PREFIX + name, n -> new LongAdder()).add(amount);
+	}
+
+	/**
+	 * Return the current value of every metric, by name. For each operation and outcome there is a {@code count},
+	 * a {@code totalTime} and a {@code maxTime} (both in milliseconds).
+	 */
+	public Map<String, Number> snapshot() {
+		Map<String, Number> snapshot = new TreeMap<>();
+		timers.forEach((name, timer) -> {
+			snapshot.put(name + ".count", timer.count.sum());
+			snapshot.put(name + ".totalTime", TimeUnit.NANOSECONDS.toMillis(timer.totalTime.sum()));
+			snapshot.put(name + ".maxTime", TimeUnit.NANOSECONDS.toMillis(timer.maxTime.get()));
+		});
+		counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+		gauges.forEach((name, value) -> snapshot.put(name, value.get()));
+		return snapshot;
+	}
+
+	/**
+	 * Return how many calls to the given operation ended with the given outcome.
+	 */
+	public long getCount(String operation, String outcome) {
+		Timer timer = timers.get(timerName(operation, outcome));
+		return timer == null ? 0L : timer.count.sum();
+	}
+
+	/**
+	 * Return the number of calls currently in flight.
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	private void start() {
+		maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+	}
+
+	/**
+	 * @param startTime when the call started in ms since the epoch if it is traced, or a negative value if not
+	 * @param start when the call started in {@link System#nanoTime()} terms
+	 */
+	private void record(String operation, String outcome, long startTime, long start) {
+		inFlight.decrementAndGet();
+		long duration = System.nanoTime() - start;
+		Timer timer = timers.computeIfAbsent(timerName(operation, outcome), n -> new Timer());
+		timer.count.increment();
+		timer.totalTime.add(duration);
+		timer.maxTime.accumulateAndGet(duration, Math::max);
+		if (startTime >= 0) {
+			tracer.span(operation, outcome, startTime, duration);
+		}
+	}
+
+	private boolean sampled() {
+		return traceSampleRate > 0 && (traceSampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < traceSampleRate);
+	}
+
+	private static String timerName(String operation, String outcome) {
+		return PREFIX + "api." + operation + "." + outcome;
+	}
+
+	private static String outcome(Throwable e) {
+		if (e instanceof HttpStatusCodeException) {
+			return ((HttpStatusCodeException) e).getStatusCode().is4xxClientError() ? "client_error" : "server_error";
+		}
+		return "error";
+	}
+
+	private static class Timer {
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder totalTime = new LongAdder();
+
+		private final AtomicLong maxTime = new AtomicLong();
+	}
+}
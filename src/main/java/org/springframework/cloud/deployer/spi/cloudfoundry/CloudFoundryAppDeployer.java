@@ -21,27 +21,44 @@ import static java.util.stream.Stream.concat;
 import static org.springframework.util.StringUtils.commaDelimitedListToSet;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.cloudfoundry.operations.CloudFoundryOperations;
 import org.cloudfoundry.operations.applications.ApplicationDetail;
+import org.cloudfoundry.operations.applications.ApplicationSummary;
 import org.cloudfoundry.operations.applications.DeleteApplicationRequest;
 import org.cloudfoundry.operations.applications.GetApplicationRequest;
 import org.cloudfoundry.operations.applications.PushApplicationRequest;
 import org.cloudfoundry.operations.applications.SetEnvironmentVariableApplicationRequest;
 import org.cloudfoundry.operations.applications.StartApplicationRequest;
-import org.cloudfoundry.operations.services.BindServiceInstanceRequest;
+import org.cloudfoundry.operations.services.ServiceInstance;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cloud.deployer.spi.app.AppDeployer;
 import org.springframework.cloud.deployer.spi.app.AppStatus;
 import org.springframework.cloud.deployer.spi.app.DeploymentState;
 import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
 
 /**
  * A deployer that targets Cloud Foundry using the public API.
@@ -49,7 +66,7 @@ import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
  * @author Eric Bottard
  * @author Greg Turnquist
  */
-public class CloudFoundryAppDeployer implements AppDeployer {
+public class CloudFoundryAppDeployer implements AppDeployer, DisposableBean {
 
 
 	public static final String MEMORY_PROPERTY_KEY = "spring.cloud.deployer.cloudfoundry.memory";
@@ -62,42 +79,198 @@ public class CloudFoundryAppDeployer implements AppDeployer {
 
 	private final CloudFoundryOperations operations;
 
+	/**
+	 * Statuses recently read from Cloud Foundry, or {@literal null} if caching is disabled.
+	 */
+	private final ExpiringCache<String, AppStatus> statusCache;
+
+	/**
+	 * Keeps hot {@link #statusCache} entries warm, or {@literal null} if background refresh is disabled.
+	 */
+	private final ScheduledExecutorService statusRefresher;
+
+	private final DeploymentScheduler deploymentScheduler;
+
+	private final CloudFoundryApiMetrics metrics;
+
+	/**
+	 * Wraps the calls made to Cloud Foundry with the configured pacing, circuit breaking and retries.
+	 */
+	private final ApiCallDecorator calls;
+
+	private final ServiceBinder serviceBinder;
+
+	private final StatusWatcher<AppStatus> statusWatcher;
+
+	/**
+	 * Local copies of remote artifacts, or {@literal null} if disabled.
+	 */
+	private final ArtifactCache artifactCache;
+
+	/**
+	 * Number of status requests that failed or gave up waiting on Cloud Foundry.
+	 */
+	private final AtomicLong statusFailures = new AtomicLong();
+
 	private static final Log logger = LogFactory.getLog(CloudFoundryAppDeployer.class);
 
 	public CloudFoundryAppDeployer(CloudFoundryDeployerProperties properties, CloudFoundryOperations operations) {
+		this(properties, operations, new ApiCallDecorator(
+				new CloudFoundryApiMetrics(new LoggingApiCallTracer(), properties.getTraceSampleRate()), properties));
+	}
+
+	public CloudFoundryAppDeployer(CloudFoundryDeployerProperties properties, CloudFoundryOperations operations,
+			CloudFoundryApiMetrics metrics) {
+		this(properties, operations, new ApiCallDecorator(metrics));
+	}
+
+	public CloudFoundryAppDeployer(CloudFoundryDeployerProperties properties, CloudFoundryOperations operations,
+			ApiCallDecorator calls) {
 		this.properties = properties;
 		this.operations = operations;
+		this.calls = calls;
+		this.metrics = calls.getMetrics();
+		this.deploymentScheduler = new DeploymentScheduler(properties.getMaxConcurrentDeployments());
+		this.serviceBinder = new ServiceBinder(operations, calls, properties.getServiceBindingConcurrency(),
+				properties.getServiceBindingConcurrencyPerService(), properties.getServiceBindingMaxAttempts(),
+				properties.getServiceBindingBackOff());
+		this.statusWatcher = new StatusWatcher<>(this::watchedStatuses, AppStatus::getState, status -> false,
+				properties.getStatusWatchInterval(), "cloudfoundry-app-status-watcher");
+		metrics.gauge("deployer.status.watches", statusWatcher::getWatchCount);
+		metrics.gauge("deployer.deployments.queued", deploymentScheduler::getQueueDepth);
+		metrics.gauge("deployer.deployments.inFlight", deploymentScheduler::getInFlight);
+		metrics.gauge("deployer.status.failures", statusFailures::get);
+		this.artifactCache = ArtifactCache.create(properties, "apps");
+		if (artifactCache != null) {
+			metrics.gauge("deployer.artifacts.size", artifactCache::getSize);
+			metrics.gauge("deployer.artifacts.count", artifactCache::getCount);
+			metrics.gauge("deployer.artifacts.hits", artifactCache::getHits);
+			metrics.gauge("deployer.artifacts.misses", artifactCache::getMisses);
+		}
+		if (properties.getStatusCacheTtl() > 0) {
+			this.statusCache = new ExpiringCache<>(properties.getStatusCacheTtl(), properties.getStatusCacheMaxSize());
+		}
+		else {
+			this.statusCache = null;
+		}
+		if (statusCache != null && properties.isStatusCacheRefresh()) {
+			long period = Math.max(properties.getStatusCacheTtl() / 2, 1L);
+			this.statusRefresher = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "cloudfoundry-status-refresher");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.statusRefresher.scheduleWithFixedDelay(this::refreshStatusCache, period, period, TimeUnit.MILLISECONDS);
+		}
+		else {
+			this.statusRefresher = null;
+		}
 	}
 
 	@Override
 	public String deploy(AppDeploymentRequest request) {
 		String deploymentId = deploymentId(request);
-		DeploymentState state = status(deploymentId).getState();
-		if (state != DeploymentState.unknown) {
-			throw new IllegalStateException(String.format("App %s is already deployed with state %s",
-					deploymentId, state));
+		// reserved first, so that a second request for the same app can't slip in while this one waits for a slot
+		List<String> reserved = Collections.singletonList(deploymentId);
+		deploymentScheduler.reserve(reserved);
+		try {
+			DeploymentState state = statusOrFail(deploymentId).getState();
+			if (state != DeploymentState.unknown) {
+				throw new IllegalStateException(String.format("App %s is already deployed with state %s",
+						deploymentId, state));
+			}
+		}
+		catch (RuntimeException e) {
+			deploymentScheduler.cancel(reserved);
+			throw e;
 		}
 
-		asyncDeploy(request)
-				.subscribe();
+		schedule(request, null);
 
 		return deploymentId;
 	}
 
-	Mono<Void> asyncDeploy(AppDeploymentRequest request) {
-		String name = deploymentId(request);
-		final String argsAsJson;
+	/**
+	 * Deploy a whole group of apps (typically a stream) at once.
+	 *
+	 * <p>The status of all apps is checked with a single bulk lookup and the service instances they bind are looked
+	 * up once for the whole group. Deployments then go through the same queue as individual ones, so pushes and
+	 * starts are pipelined up to {@link CloudFoundryDeployerProperties#getMaxConcurrentDeployments()} at a time.</p>
+	 *
+	 * @param requests the requests to deploy, which must all belong to the same group
+	 * @return the deployment ids, in iteration order of {@code requests}
+	 * @throws IllegalStateException if any of the apps is already deployed or being deployed, or their status could
+	 * not be resolved
+	 */
+	public List<String> deployGroup(Collection<AppDeploymentRequest> requests) {
+		Set<String> groups = requests.stream().map(this::group).collect(Collectors.toSet());
+		if (groups.size() > 1) {
+			throw new IllegalArgumentException(String.format("Apps of different groups %s can't be deployed together", groups));
+		}
+		List<String> deploymentIds = requests.stream().map(this::deploymentId).collect(Collectors.toList());
+		deploymentScheduler.reserve(deploymentIds);
 		try {
-			argsAsJson = new ObjectMapper().writeValueAsString(request.getDefinition().getProperties());
+			statusOrFail(deploymentIds).forEach((deploymentId, status) -> {
+				if (status.getState() != DeploymentState.unknown) {
+					throw new IllegalStateException(String.format("App %s is already deployed with state %s",
+							deploymentId, status.getState()));
+				}
+			});
 		}
-		catch (JsonProcessingException e) {
-			throw new RuntimeException(e);
+		catch (RuntimeException e) {
+			deploymentScheduler.cancel(deploymentIds);
+			throw e;
 		}
-		try {
+
+		Set<String> services = requests.stream()
+			.flatMap(request -> servicesToBind(request).stream())
+			.collect(Collectors.toCollection(LinkedHashSet::new));
+		Mono<Map<String, ServiceInstance>> serviceInstances = serviceBinder.serviceInstances(services).cache();
+		requests.forEach(request -> schedule(request, serviceInstances));
+
+		return deploymentIds;
+	}
+
+	/**
+	 * @param serviceInstances the service instances to bind, looked up in advance, or {@literal null} to look them
+	 * up as part of the deployment
+	 * @see DeploymentScheduler#reserve(Collection)
+	 */
+	private void schedule(AppDeploymentRequest request, Mono<Map<String, ServiceInstance>> serviceInstances) {
+		String deploymentId = deploymentId(request);
+		evictStatus(deploymentId);
+		deploymentScheduler.submit(group(request), deploymentId, () -> asyncDeploy(request, serviceInstances)
+				.doOnSuccess(v -> evictStatus(deploymentId))
+				.doOnError(e -> evictStatus(deploymentId)));
+	}
+
+	Mono<Void> asyncDeploy(AppDeploymentRequest request) {
+		return asyncDeploy(request, null);
+	}
+
+	Mono<Void> asyncDeploy(AppDeploymentRequest request, Mono<Map<String, ServiceInstance>> serviceInstances) {
+		String name = deploymentId(request);
+		// a new app starts without environment, so there is nothing to set if there are no properties
+		String argsAsJson = SpringApplicationJson.serialize(request.getDefinition().getProperties());
+		// the bits are opened anew each time the push is attempted, as a failed attempt leaves the stream consumed, but
+		// the artifact is only resolved once
+		AtomicReference<Resource> artifact = new AtomicReference<>();
+		return calls.decorate("push", Mono.defer(() -> {
+			ProgressInputStream progress;
+			try {
+				if (artifact.get() == null) {
+					artifact.set(artifact(request));
+				}
+				progress = UploadStreams.open(artifact.get(), properties.getUploadChunkSize(), name,
+					bytes -> metrics.increment("api.upload.bytes", bytes));
+			}
+			catch (IOException e) {
+				return Mono.error(e);
+			}
 			return operations.applications()
 				.push(PushApplicationRequest.builder()
 					.name(name)
-					.application(request.getResource().getInputStream())
+					.application(progress)
 					.domain(properties.getDomain())
 					.buildpack(properties.getBuildpack())
 					.diskQuota(diskQuota(request))
@@ -105,75 +278,273 @@ public class CloudFoundryAppDeployer implements AppDeployer {
 					.memory(memory(request))
 					.noStart(true)
 					.build())
-				.doOnSuccess(v -> logger.info(String.format("Done uploading bits for %s", name)))
-				.doOnError(e -> logger.error(String.format("Error creating app %s", name), e))
-				.after(() -> operations.applications().setEnvironmentVariable(
-					SetEnvironmentVariableApplicationRequest.builder()
+				.doOnError(e -> logger.warn(String.format("Pushing %s failed after uploading %d of %d bytes", name,
+					progress.getCount(), progress.getTotal())));
+		}))
+			.doOnSuccess(v -> logger.info(String.format("Done uploading bits for %s", name)))
+			.doOnError(e -> logger.error(String.format("Error creating app %s", name), e))
+			.after(() -> Flux.merge(
+				argsAsJson == null ? Mono.<Void>empty() : calls.decorate("setEnvironment", operations.applications()
+					.setEnvironmentVariable(SetEnvironmentVariableApplicationRequest.builder()
 						.name(name)
-						.variableName("SPRING_APPLICATION_JSON")
+						.variableName(SpringApplicationJson.VARIABLE_NAME)
 						.variableValue(argsAsJson)
-						.build())
+						.build()))
 					.doOnSuccess(v -> logger.debug(String.format("Setting env for app %s as %s", name, argsAsJson)))
-					.doOnError(e -> logger.error(String.format("Error setting environment for app %s", name), e))
-				)
-				.after(() -> servicesToBind(request)
-					.flatMap(service -> operations.services()
-						.bind(BindServiceInstanceRequest.builder()
-							.applicationName(name)
-							.serviceInstanceName(service)
-							.build())
-							.doOnSuccess(v -> logger.debug(String.format("Binding service %s to app %s", service, name)))
-							.doOnError(e -> logger.error(String.format("Failed to bind service %s to app %s", service, name), e))
-					)
-					.after() /* this after() merges all the bindServices Mono<Void>'s into 1 */)
-                .after(() -> operations.applications()
+					.doOnError(e -> logger.error(String.format("Error setting environment for app %s", name), e)),
+				serviceInstances == null
+					? serviceBinder.bind(name, servicesToBind(request))
+					: serviceBinder.bind(name, servicesToBind(request), serviceInstances))
+				.after() /* environment and bindings are independent, so they are configured concurrently */)
+                .after(() -> calls.decorate("start", operations.applications()
                     .start(StartApplicationRequest.builder()
                         .name(name)
-                        .build())
+                        .build()))
 		                .doOnSuccess(v -> logger.info(String.format("Started app %s", name)))
 		                .doOnError(e -> logger.error(String.format("Failed to start app %s", name), e))
                 );
-		} catch (IOException e) {
-			return Mono.error(e);
-		}
+	}
+
+	/**
+	 * Return the artifact of the request, from the local cache if enabled.
+	 */
+	private Resource artifact(AppDeploymentRequest request) throws IOException {
+		return artifactCache == null ? request.getResource() : artifactCache.resolve(request.getResource());
 	}
 
 	@Override
 	public void undeploy(String id) {
-		asyncUndeploy(id).subscribe();
+		evictStatus(id);
+		asyncUndeploy(id)
+			.doOnSuccess(v -> evictStatus(id))
+			.doOnError(e -> evictStatus(id))
+			.subscribe();
 	}
 
 	Mono<Void> asyncUndeploy(String id) {
-		return operations.applications()
+		return calls.decorate("delete", operations.applications()
 			.delete(
 					DeleteApplicationRequest.builder()
 							.deleteRoutes(true)
 							.name(id)
 							.build()
-			)
+			))
 			.doOnSuccess(v -> logger.info(String.format("Sucessfully undeployed app %s", id)))
 			.doOnError(e -> logger.error(String.format("Failed to undeploy app %s", id), e));
 	}
 
+	/**
+	 * Return the status of the deployment, or an {@link DeploymentState#unknown} one (which is not cached) if it could
+	 * not be resolved in time.
+	 */
 	@Override
 	public AppStatus status(String id) {
-		return asyncStatus(id)
-			.get();
+		AppStatus status = statusCache == null ? null : statusCache.get(id);
+		if (status == null) {
+			try {
+				status = asyncStatus(id)
+					.get(apiTimeout());
+			}
+			catch (RuntimeException e) {
+				logger.warn(String.format("Could not resolve the status of app %s within %s", id, apiTimeout()), e);
+				statusFailures.incrementAndGet();
+				return AppStatus.of(id).build();
+			}
+			if (statusCache != null) {
+				statusCache.put(id, status);
+			}
+		}
+		return status;
 	}
 
+	/**
+	 * Resolve the status of a deployment, which is {@link DeploymentState#unknown} if Cloud Foundry does not know the
+	 * app. Any other failure is propagated, so that it is not mistaken for the app being gone.
+	 */
 	Mono<AppStatus> asyncStatus(String id) {
-		return operations.applications()
+		return calls.decorate("status", operations.applications()
 			.get(GetApplicationRequest.builder()
 					.name(id)
-					.build())
+					.build()))
 			.then(ad -> createAppStatusBuilder(id, ad))
-			.otherwise(e -> emptyAppStatusBuilder(id))
+			.otherwise(e -> isNotFound(e) ? emptyAppStatusBuilder(id) : Mono.<AppStatus.Builder>error(e))
 			.map(AppStatus.Builder::build);
 	}
 
+	/**
+	 * Resolve the status of several deployments at once.
+	 *
+	 * <p>A single (paged) listing of the applications in the target space tells which ids are deployed at all and
+	 * which are fully running. Only applications that are still converging are looked up individually, so the
+	 * number of requests no longer grows with the number of ids asked for.</p>
+	 *
+	 * @param ids the deployment ids to resolve
+	 * @return the status of each id, in iteration order of {@code ids}. Ids that are not deployed map to
+	 * {@link DeploymentState#unknown}, and so do all ids if the statuses could not be resolved (in which case they
+	 * are not cached)
+	 */
+	public Map<String, AppStatus> status(Collection<String> ids) {
+		Map<String, AppStatus> statuses;
+		try {
+			statuses = asyncStatus(ids)
+				.get(apiTimeout());
+		}
+		catch (RuntimeException e) {
+			logger.warn(String.format("Could not resolve the status of %d apps within %s", ids.size(), apiTimeout()), e);
+			statusFailures.incrementAndGet();
+			statuses = new LinkedHashMap<>();
+			for (String id : ids) {
+				statuses.put(id, AppStatus.of(id).build());
+			}
+			return statuses;
+		}
+		if (statusCache != null) {
+			statuses.forEach(statusCache::put);
+		}
+		return statuses;
+	}
 
-	private Flux<Map.Entry<String, String>> environmenVariables(AppDeploymentRequest request) {
-		return Flux.fromStream(request.getDefinition().getProperties().entrySet().stream());
+	Mono<Map<String, AppStatus>> asyncStatus(Collection<String> ids) {
+		Map<String, AppStatus> statuses = new LinkedHashMap<>();
+		ids.forEach(id -> statuses.put(id, AppStatus.of(id).build()));
+
+		return calls.decorate("listApplications", operations.applications()
+			.list())
+			.filter(summary -> statuses.containsKey(summary.getName()))
+			.flatMap(summary -> isFullyRunning(summary)
+				? Mono.just(runningAppStatus(summary))
+				: asyncStatus(summary.getName()))
+			.reduce(statuses, (map, status) -> {
+				map.put(status.getDeploymentId(), status);
+				return map;
+			})
+			.doOnError(e -> logger.error("Failed to list applications", e));
+	}
+
+	/**
+	 * Resolve the status of a deployment to check it can be deployed. Unlike {@link #status(String)}, fails rather
+	 * than answering {@link DeploymentState#unknown} when Cloud Foundry can't tell.
+	 *
+	 * @throws IllegalStateException if the status could not be resolved
+	 */
+	private AppStatus statusOrFail(String id) {
+		AppStatus status = statusCache == null ? null : statusCache.get(id);
+		if (status != null) {
+			return status;
+		}
+		try {
+			return asyncStatus(id)
+				.get(apiTimeout());
+		}
+		catch (RuntimeException e) {
+			throw new IllegalStateException(String.format("Could not tell whether app %s is already deployed", id), e);
+		}
+	}
+
+	/**
+	 * Resolve the status of several deployments to check they can be deployed. Unlike {@link #status(Collection)},
+	 * fails rather than answering {@link DeploymentState#unknown} when Cloud Foundry can't tell.
+	 *
+	 * @throws IllegalStateException if the statuses could not be resolved
+	 */
+	private Map<String, AppStatus> statusOrFail(Collection<String> ids) {
+		try {
+			return asyncStatus(ids)
+				.get(apiTimeout());
+		}
+		catch (RuntimeException e) {
+			throw new IllegalStateException(String.format("Could not tell whether apps %s are already deployed", ids), e);
+		}
+	}
+
+	/**
+	 * Look up the statuses of several deployments for {@link #statusWatcher}. Unlike {@link #status(Collection)},
+	 * fails rather than answering {@link DeploymentState#unknown} when Cloud Foundry can't tell, so that watchers keep
+	 * the last known state instead of being told about a change that did not happen.
+	 */
+	private Map<String, AppStatus> watchedStatuses(Collection<String> ids) {
+		return asyncStatus(ids)
+			.get(apiTimeout());
+	}
+
+	/**
+	 * Watch the status of a deployment, instead of polling {@link #status(String)}.
+	 *
+	 * <p>The returned {@link Flux} emits the current status, then each status whose {@link DeploymentState} differs
+	 * from the previous one, until cancelled. All watches share a single bulk status lookup every
+	 * {@link CloudFoundryDeployerProperties#getStatusWatchInterval() interval}.</p>
+	 *
+	 * @param id the deployment id
+	 */
+	public Flux<AppStatus> watch(String id) {
+		return statusWatcher.watch(id);
+	}
+
+	/**
+	 * Return the number of status requests that failed or timed out, and were answered with
+	 * {@link DeploymentState#unknown}.
+	 */
+	public long getStatusFailures() {
+		return statusFailures.get();
+	}
+
+	/**
+	 * Return the number of deployments waiting for a free slot.
+	 */
+	public int getDeploymentQueueDepth() {
+		return deploymentScheduler.getQueueDepth();
+	}
+
+	/**
+	 * Return the number of deployments waiting for a free slot, per group.
+	 */
+	public Map<String, Integer> getDeploymentQueueDepths() {
+		return deploymentScheduler.getQueueDepths();
+	}
+
+	/**
+	 * Return the number of deployments currently running.
+	 */
+	public int getDeploymentsInFlight() {
+		return deploymentScheduler.getInFlight();
+	}
+
+	@Override
+	public void destroy() {
+		if (statusRefresher != null) {
+			statusRefresher.shutdownNow();
+		}
+		statusWatcher.shutdown();
+	}
+
+	private Duration apiTimeout() {
+		return Duration.ofMillis(properties.getApiTimeout());
+	}
+
+	private void evictStatus(String id) {
+		if (statusCache != null) {
+			statusCache.invalidate(id);
+		}
+	}
+
+	/**
+	 * Re-read, in bulk, the statuses that have been served from cache since they were last refreshed. Entries
+	 * nobody asked for are left to expire.
+	 */
+	private void refreshStatusCache() {
+		try {
+			Collection<String> hot = statusCache.hotKeys();
+			if (!hot.isEmpty()) {
+				status(hot);
+			}
+		}
+		catch (Exception e) {
+			logger.warn("Failed to refresh cached application statuses", e);
+		}
+	}
+
+	private String group(AppDeploymentRequest request) {
+		return String.valueOf(request.getEnvironmentProperties().get(GROUP_PROPERTY_KEY));
 	}
 
 	private String deploymentId(AppDeploymentRequest request) {
@@ -182,11 +553,11 @@ public class CloudFoundryAppDeployer implements AppDeployer {
 			request.getDefinition().getName());
 	}
 
-	private Flux<String> servicesToBind(AppDeploymentRequest request) {
-		return Flux.fromStream(
-			concat(
+	private Set<String> servicesToBind(AppDeploymentRequest request) {
+		return concat(
 				properties.getServices().stream(),
-				commaDelimitedListToSet(request.getEnvironmentProperties().get(SERVICES_PROPERTY_KEY)).stream()));
+				commaDelimitedListToSet(request.getEnvironmentProperties().get(SERVICES_PROPERTY_KEY)).stream())
+			.collect(Collectors.toCollection(LinkedHashSet::new));
 	}
 
 	private int memory(AppDeploymentRequest request) {
@@ -209,10 +580,37 @@ public class CloudFoundryAppDeployer implements AppDeployer {
 			.then(b -> addInstances(b, ad));
 	}
 
+	/**
+	 * Tell whether a failed lookup means the app does not exist, which the operations API reports with an
+	 * {@link IllegalArgumentException}.
+	 */
+	private static boolean isNotFound(Throwable e) {
+		return e instanceof IllegalArgumentException
+			|| e instanceof HttpClientErrorException && ((HttpClientErrorException) e).getStatusCode() == HttpStatus.NOT_FOUND;
+	}
+
 	private Mono<AppStatus.Builder> emptyAppStatusBuilder(String id) {
 		return Mono.just(AppStatus.of(id));
 	}
 
+	private boolean isFullyRunning(ApplicationSummary summary) {
+		return "STARTED".equals(summary.getRequestedState())
+			&& summary.getInstances() != null && summary.getInstances() > 0
+			&& Objects.equals(summary.getInstances(), summary.getRunningInstances());
+	}
+
+	/**
+	 * Build the status of an application known (from its summary) to have all of its instances running, without
+	 * fetching the details of each instance.
+	 */
+	private AppStatus runningAppStatus(ApplicationSummary summary) {
+		AppStatus.Builder builder = AppStatus.of(summary.getName());
+		for (int i = 0; i < summary.getInstances(); i++) {
+			builder.with(new CloudFoundryAppInstanceStatus(summary.getName(), "RUNNING", i));
+		}
+		return builder.build();
+	}
+
 	private Mono<AppStatus.Builder> addInstances(AppStatus.Builder initial, ApplicationDetail ad) {
 		return Flux.fromIterable(ad.getInstanceDetails())
 				.zipWith(Flux.range(0, ad.getRunningInstances()))
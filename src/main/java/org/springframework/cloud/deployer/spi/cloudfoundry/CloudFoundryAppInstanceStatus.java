@@ -30,30 +30,38 @@ import java.util.Map;
  */
 public class CloudFoundryAppInstanceStatus implements AppInstanceStatus {
 
-	private final ApplicationDetail.InstanceDetail instanceDetail;
+	private final String applicationName;
 
-	private final ApplicationDetail applicationDetail;
+	private final String instanceState;
 
 	private final int index;
 
 	public CloudFoundryAppInstanceStatus(ApplicationDetail applicationDetail, ApplicationDetail.InstanceDetail instanceDetail, int index) {
-		this.applicationDetail = applicationDetail;
-		this.instanceDetail = instanceDetail;
+		this(applicationDetail.getName(), instanceDetail == null ? null : instanceDetail.getState(), index);
+	}
+
+	/**
+	 * Create a status from a raw Cloud Foundry instance state, for when no {@link ApplicationDetail} is at hand
+	 * (<em>e.g.</em> when derived from an application summary).
+	 */
+	CloudFoundryAppInstanceStatus(String applicationName, String instanceState, int index) {
+		this.applicationName = applicationName;
+		this.instanceState = instanceState;
 		this.index = index;
 	}
 
 	@Override
 	public String getId() {
-		return applicationDetail.getName() + "-" + index;
+		return applicationName + "-" + index;
 	}
 
 	@Override
 	public DeploymentState getState() {
-		if (instanceDetail == null) {
+		if (instanceState == null) {
 			return DeploymentState.failed;
 		}
 
-		switch (instanceDetail.getState()) {
+		switch (instanceState) {
 			case "STARTING":
 			case "DOWN":
 				return DeploymentState.deploying;
@@ -67,7 +75,7 @@ public class CloudFoundryAppInstanceStatus implements AppInstanceStatus {
 			case "UNKNOWN":
 				return DeploymentState.unknown;
 			default:
-				throw new IllegalStateException("Unsupported CF state " + instanceDetail.getState());
+				throw new IllegalStateException("Unsupported CF state " + instanceState);
 		}
 	}
 
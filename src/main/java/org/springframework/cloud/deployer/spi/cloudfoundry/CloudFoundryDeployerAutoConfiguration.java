@@ -17,13 +17,17 @@
 package org.springframework.cloud.deployer.spi.cloudfoundry;
 
 import java.net.URL;
+import java.util.stream.Collectors;
 
 import org.cloudfoundry.client.CloudFoundryClient;
 import org.cloudfoundry.operations.CloudFoundryOperations;
 import org.cloudfoundry.operations.CloudFoundryOperationsBuilder;
 import org.cloudfoundry.spring.client.SpringCloudFoundryClient;
 
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
 import org.springframework.boot.autoconfigure.AutoConfigureOrder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.deployer.spi.app.AppDeployer;
@@ -33,7 +37,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.core.Ordered;
 
 /**
- * Creates a {@link CloudFoundryAppDeployer} and {@link CloudFoundryTaskLauncher}
+ * Creates a {@link CloudFoundryAppDeployer} and {@link CloudFoundryTaskLauncher}, sharing an {@link ApiCallDecorator}
+ * and {@link CloudFoundryApiMetrics} that are published as {@link PublicMetrics} when Spring Boot Actuator is present.
  *
  * @author Eric Bottard
  */
@@ -45,6 +50,7 @@ public class CloudFoundryDeployerAutoConfiguration {
 	@Bean
 	public CloudFoundryClient cloudFoundryClient(CloudFoundryDeployerProperties properties) {
 		URL apiEndpoint = properties.getApiEndpoint();
+		HttpClientTuning.apply(properties);
 
 		return SpringCloudFoundryClient.builder()
 				.host(apiEndpoint.getHost())
@@ -63,16 +69,47 @@ public class CloudFoundryDeployerAutoConfiguration {
 				.build();
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	public ApiCallTracer apiCallTracer() {
+		return new LoggingApiCallTracer();
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public CloudFoundryApiMetrics cloudFoundryApiMetrics(CloudFoundryDeployerProperties properties, ApiCallTracer tracer) {
+		return new CloudFoundryApiMetrics(tracer, properties.getTraceSampleRate());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public ApiCallDecorator cloudFoundryApiCalls(CloudFoundryDeployerProperties properties, CloudFoundryApiMetrics metrics) {
+		return new ApiCallDecorator(metrics, properties);
+	}
 
 	@Bean
 	@ConditionalOnMissingBean(AppDeployer.class)
-	public AppDeployer appDeployer(CloudFoundryDeployerProperties properties, CloudFoundryOperations operations) {
-		return new CloudFoundryAppDeployer(properties, operations);
+	public AppDeployer appDeployer(CloudFoundryDeployerProperties properties, CloudFoundryOperations operations,
+			ApiCallDecorator calls) {
+		return new CloudFoundryAppDeployer(properties, operations, calls);
 	}
 
 	@Bean
 	@ConditionalOnMissingBean(TaskLauncher.class)
-	public TaskLauncher taskLauncher(CloudFoundryClient client) {
-		return new CloudFoundryTaskLauncher(client);
+	public TaskLauncher taskLauncher(CloudFoundryClient client, CloudFoundryDeployerProperties properties,
+			ApiCallDecorator calls) {
+		return new CloudFoundryTaskLauncher(client, properties, calls);
+	}
+
+	@Configuration
+	@ConditionalOnClass(PublicMetrics.class)
+	protected static class PublicMetricsConfiguration {
+
+		@Bean
+		public PublicMetrics cloudFoundryDeployerPublicMetrics(CloudFoundryApiMetrics metrics) {
+			return () -> metrics.snapshot().entrySet().stream()
+					.<Metric<?>>map(e -> new Metric<>(e.getKey(), e.getValue()))
+					.collect(Collectors.toList());
+		}
 	}
 }
@@ -16,7 +16,9 @@
 package org.springframework.cloud.deployer.spi.cloudfoundry;
 
 import java.net.URL;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import javax.validation.constraints.NotNull;
@@ -99,6 +101,207 @@ public class CloudFoundryDeployerProperties {
 	 */
 	private int instances = 1;
 
+	/**
+	 * How long (in ms) an application status may be served from cache. A value of 0 disables status caching.
+	 */
+	private long statusCacheTtl = 0L;
+
+	/**
+	 * The maximum number of application statuses to keep in cache.
+	 */
+	private int statusCacheMaxSize = 1000;
+
+	/**
+	 * Whether cached statuses that are being read should be refreshed in the background before they expire.
+	 */
+	private boolean statusCacheRefresh = true;
+
+	/**
+	 * How long (in ms) to wait for a blocking call to the Cloud Foundry API (such as a status request) before
+	 * giving up.
+	 */
+	private long apiTimeout = 30_000L;
+
+	/**
+	 * The maximum number of deployments (upload, staging and start) to run at the same time. Further deployments
+	 * are queued, and served fairly across groups. Must be at least 1.
+	 */
+	private int maxConcurrentDeployments = 10;
+
+	/**
+	 * The number of bytes of a file based application artifact to map into memory at a time while uploading it.
+	 */
+	private int uploadChunkSize = 4 * 1024 * 1024;
+
+	/**
+	 * Where to keep local copies of remote application artifacts. Defaults to a directory in {@code java.io.tmpdir}.
+	 */
+	private String artifactCacheDirectory;
+
+	/**
+	 * The number of bytes the local copies of remote application artifacts may take, for each of the app deployer
+	 * and the task launcher, before the least recently used are deleted. A value of 0 (the default) disables the
+	 * cache.
+	 */
+	private long artifactCacheMaxSize = 0L;
+
+	/**
+	 * Whether task applications created from an artifact that was already staged with the same buildpack should get
+	 * a copy of the existing droplet instead of being staged again.
+	 */
+	private boolean reuseDroplets = false;
+
+	/**
+	 * The minimum delay (in ms) between two checks of whether a package or droplet is done processing.
+	 */
+	private long stagingPollMinDelay = 500L;
+
+	/**
+	 * The maximum delay (in ms) between two checks of whether a package or droplet is done processing.
+	 */
+	private long stagingPollMaxDelay = 60_000L;
+
+	/**
+	 * How long (in ms) to wait for a package or droplet to be done processing before giving up.
+	 */
+	private long stagingPollTimeout = 600_000L;
+
+	/**
+	 * The maximum number of checks of whether a package or droplet is done processing.
+	 */
+	private int stagingPollMaxAttempts = 50;
+
+	/**
+	 * The maximum number of staged task applications to keep ready for launching tasks. Applications beyond that
+	 * number are deleted, least recently used first. A value of 0 disables pooling.
+	 */
+	private int taskApplicationPoolSize = 0;
+
+	/**
+	 * How long (in ms) a pooled task application may go without launching a task before it is deleted. A value of 0
+	 * keeps pooled applications regardless of use.
+	 */
+	private long taskApplicationIdleTimeout = 0L;
+
+	/**
+	 * How long (in ms) resolved organization, space and application ids may be reused. A value of 0 resolves them
+	 * again on every call.
+	 */
+	private long guidCacheTtl = 0L;
+
+	/**
+	 * The maximum number of resolved ids to keep, per kind of entity.
+	 */
+	private int guidCacheMaxSize = 1000;
+
+	/**
+	 * The fraction (between 0 and 1) of Cloud Foundry API calls to trace, one span per call. A value of 0 disables
+	 * tracing.
+	 */
+	private double traceSampleRate = 0.0;
+
+	/**
+	 * The maximum number of services bound concurrently to one application. Must be at least 1.
+	 */
+	private int serviceBindingConcurrency = 4;
+
+	/**
+	 * The maximum number of concurrent bindings to instances of the same service (and so, of the same broker), across
+	 * all applications being deployed. Must be at least 1.
+	 */
+	private int serviceBindingConcurrencyPerService = 2;
+
+	/**
+	 * The maximum number of attempts at binding a service, when binding fails with a server error or is throttled.
+	 */
+	private int serviceBindingMaxAttempts = 3;
+
+	/**
+	 * The base delay (in ms) before retrying a service binding. Actual delays are randomized and grow exponentially.
+	 */
+	private long serviceBindingBackOff = 1000L;
+
+	/**
+	 * How often (in ms) the statuses of watched apps and tasks are looked up. All watches share one lookup per
+	 * interval.
+	 */
+	private long statusWatchInterval = 5000L;
+
+	/**
+	 * How often (in ms) the statuses of launched tasks are refreshed in bulk in the background, so that reading them
+	 * costs no request. A value of 0 looks statuses up on every call instead.
+	 */
+	private long taskStatusRefreshInterval = 0L;
+
+	/**
+	 * Whether to keep connections open for reuse, saving a TCP and TLS handshake per request. Left unset, the JVM
+	 * default (true) applies. Like the other http settings, this is a best effort, process wide setting: it sets a
+	 * system property, which affects every {@code HttpURLConnection} of the JVM and not only those to Cloud Foundry,
+	 * and is ignored if the JVM already opened a connection.
+	 */
+	private Boolean httpKeepAlive;
+
+	/**
+	 * The maximum number of idle connections kept open per host, JVM wide. A value of 0 leaves the JVM default (5).
+	 */
+	private int httpMaxConnections = 0;
+
+	/**
+	 * How long (in ms) to wait for a connection to be established, JVM wide. A value of 0 leaves the JVM default.
+	 */
+	private long httpConnectTimeout = 0L;
+
+	/**
+	 * How long (in ms) to wait for data on an open connection, JVM wide. A value of 0 leaves the JVM default.
+	 */
+	private long httpReadTimeout = 0L;
+
+	/**
+	 * The maximum rate (in calls per second) of calls to Cloud Foundry. A value of 0 sets no limit of our own, but
+	 * calls are still held back when Cloud Foundry answers 429 or 503.
+	 */
+	private double apiRateLimit = 0.0;
+
+	/**
+	 * The number of calls that may go through at once before {@link #apiRateLimit} applies.
+	 */
+	private int apiRateLimitBurst = 20;
+
+	/**
+	 * The maximum number of attempts at a call answered with 429 or 503, each one made after the delay asked for by
+	 * Cloud Foundry.
+	 */
+	private int apiThrottleMaxAttempts = 10;
+
+	/**
+	 * The maximum number of attempts at an operation safe to repeat (such as a status or a listing) that fails with a
+	 * server error or a connection error.
+	 */
+	private int apiRetryMaxAttempts = 3;
+
+	/**
+	 * Overrides of {@link #apiRetryMaxAttempts} by operation name (as used in the API metrics, such as
+	 * {@code status}). Operations not safe to repeat are never retried.
+	 */
+	private Map<String, Integer> apiRetryMaxAttemptsByOperation = new HashMap<>();
+
+	/**
+	 * The base delay (in ms) between attempts at an operation. Each attempt waits a random time up to twice as long
+	 * as the previous one could.
+	 */
+	private long apiRetryBackOff = 500L;
+
+	/**
+	 * The number of consecutive calls failing with a server error or a connection error after which calls fail fast
+	 * without reaching Cloud Foundry. A value of 0 disables the circuit breaker.
+	 */
+	private int apiCircuitBreakerFailureThreshold = 20;
+
+	/**
+	 * How long (in ms) calls fail fast before a trial call is let through to see if Cloud Foundry is back.
+	 */
+	private long apiCircuitBreakerOpenTimeout = 30_000L;
+
 	public Set<String> getServices() {
 		return services;
 	}
@@ -194,4 +397,292 @@ public class CloudFoundryDeployerProperties {
 	public void setInstances(int instances) {
 		this.instances = instances;
 	}
+
+	public long getStatusCacheTtl() {
+		return statusCacheTtl;
+	}
+
+	public void setStatusCacheTtl(long statusCacheTtl) {
+		this.statusCacheTtl = statusCacheTtl;
+	}
+
+	public int getStatusCacheMaxSize() {
+		return statusCacheMaxSize;
+	}
+
+	public void setStatusCacheMaxSize(int statusCacheMaxSize) {
+		this.statusCacheMaxSize = statusCacheMaxSize;
+	}
+
+	public boolean isStatusCacheRefresh() {
+		return statusCacheRefresh;
+	}
+
+	public void setStatusCacheRefresh(boolean statusCacheRefresh) {
+		this.statusCacheRefresh = statusCacheRefresh;
+	}
+
+	public long getApiTimeout() {
+		return apiTimeout;
+	}
+
+	public void setApiTimeout(long apiTimeout) {
+		this.apiTimeout = apiTimeout;
+	}
+
+	public int getMaxConcurrentDeployments() {
+		return maxConcurrentDeployments;
+	}
+
+	public void setMaxConcurrentDeployments(int maxConcurrentDeployments) {
+		this.maxConcurrentDeployments = maxConcurrentDeployments;
+	}
+
+	public int getUploadChunkSize() {
+		return uploadChunkSize;
+	}
+
+	public void setUploadChunkSize(int uploadChunkSize) {
+		this.uploadChunkSize = uploadChunkSize;
+	}
+
+	public boolean isReuseDroplets() {
+		return reuseDroplets;
+	}
+
+	public void setReuseDroplets(boolean reuseDroplets) {
+		this.reuseDroplets = reuseDroplets;
+	}
+
+	public long getStagingPollMinDelay() {
+		return stagingPollMinDelay;
+	}
+
+	public void setStagingPollMinDelay(long stagingPollMinDelay) {
+		this.stagingPollMinDelay = stagingPollMinDelay;
+	}
+
+	public long getStagingPollMaxDelay() {
+		return stagingPollMaxDelay;
+	}
+
+	public void setStagingPollMaxDelay(long stagingPollMaxDelay) {
+		this.stagingPollMaxDelay = stagingPollMaxDelay;
+	}
+
+	public long getStagingPollTimeout() {
+		return stagingPollTimeout;
+	}
+
+	public void setStagingPollTimeout(long stagingPollTimeout) {
+		this.stagingPollTimeout = stagingPollTimeout;
+	}
+
+	public int getStagingPollMaxAttempts() {
+		return stagingPollMaxAttempts;
+	}
+
+	public void setStagingPollMaxAttempts(int stagingPollMaxAttempts) {
+		this.stagingPollMaxAttempts = stagingPollMaxAttempts;
+	}
+
+	public int getTaskApplicationPoolSize() {
+		return taskApplicationPoolSize;
+	}
+
+	public void setTaskApplicationPoolSize(int taskApplicationPoolSize) {
+		this.taskApplicationPoolSize = taskApplicationPoolSize;
+	}
+
+	public long getTaskApplicationIdleTimeout() {
+		return taskApplicationIdleTimeout;
+	}
+
+	public void setTaskApplicationIdleTimeout(long taskApplicationIdleTimeout) {
+		this.taskApplicationIdleTimeout = taskApplicationIdleTimeout;
+	}
+
+	public long getGuidCacheTtl() {
+		return guidCacheTtl;
+	}
+
+	public void setGuidCacheTtl(long guidCacheTtl) {
+		this.guidCacheTtl = guidCacheTtl;
+	}
+
+	public int getGuidCacheMaxSize() {
+		return guidCacheMaxSize;
+	}
+
+	public void setGuidCacheMaxSize(int guidCacheMaxSize) {
+		this.guidCacheMaxSize = guidCacheMaxSize;
+	}
+
+	public double getTraceSampleRate() {
+		return traceSampleRate;
+	}
+
+	public void setTraceSampleRate(double traceSampleRate) {
+		this.traceSampleRate = traceSampleRate;
+	}
+
+	public int getServiceBindingConcurrency() {
+		return serviceBindingConcurrency;
+	}
+
+	public void setServiceBindingConcurrency(int serviceBindingConcurrency) {
+		this.serviceBindingConcurrency = serviceBindingConcurrency;
+	}
+
+	public int getServiceBindingConcurrencyPerService() {
+		return serviceBindingConcurrencyPerService;
+	}
+
+	public void setServiceBindingConcurrencyPerService(int serviceBindingConcurrencyPerService) {
+		this.serviceBindingConcurrencyPerService = serviceBindingConcurrencyPerService;
+	}
+
+	public int getServiceBindingMaxAttempts() {
+		return serviceBindingMaxAttempts;
+	}
+
+	public void setServiceBindingMaxAttempts(int serviceBindingMaxAttempts) {
+		this.serviceBindingMaxAttempts = serviceBindingMaxAttempts;
+	}
+
+	public long getServiceBindingBackOff() {
+		return serviceBindingBackOff;
+	}
+
+	public void setServiceBindingBackOff(long serviceBindingBackOff) {
+		this.serviceBindingBackOff = serviceBindingBackOff;
+	}
+
+	public long getStatusWatchInterval() {
+		return statusWatchInterval;
+	}
+
+	public void setStatusWatchInterval(long statusWatchInterval) {
+		this.statusWatchInterval = statusWatchInterval;
+	}
+
+	public long getTaskStatusRefreshInterval() {
+		return taskStatusRefreshInterval;
+	}
+
+	public void setTaskStatusRefreshInterval(long taskStatusRefreshInterval) {
+		this.taskStatusRefreshInterval = taskStatusRefreshInterval;
+	}
+
+	public Boolean getHttpKeepAlive() {
+		return httpKeepAlive;
+	}
+
+	public void setHttpKeepAlive(Boolean httpKeepAlive) {
+		this.httpKeepAlive = httpKeepAlive;
+	}
+
+	public int getHttpMaxConnections() {
+		return httpMaxConnections;
+	}
+
+	public void setHttpMaxConnections(int httpMaxConnections) {
+		this.httpMaxConnections = httpMaxConnections;
+	}
+
+	public long getHttpConnectTimeout() {
+		return httpConnectTimeout;
+	}
+
+	public void setHttpConnectTimeout(long httpConnectTimeout) {
+		this.httpConnectTimeout = httpConnectTimeout;
+	}
+
+	public long getHttpReadTimeout() {
+		return httpReadTimeout;
+	}
+
+	public void setHttpReadTimeout(long httpReadTimeout) {
+		this.httpReadTimeout = httpReadTimeout;
+	}
+
+	public double getApiRateLimit() {
+		return apiRateLimit;
+	}
+
+	public void setApiRateLimit(double apiRateLimit) {
+		this.apiRateLimit = apiRateLimit;
+	}
+
+	public int getApiRateLimitBurst() {
+		return apiRateLimitBurst;
+	}
+
+	public void setApiRateLimitBurst(int apiRateLimitBurst) {
+		this.apiRateLimitBurst = apiRateLimitBurst;
+	}
+
+	public int getApiThrottleMaxAttempts() {
+		return apiThrottleMaxAttempts;
+	}
+
+	public void setApiThrottleMaxAttempts(int apiThrottleMaxAttempts) {
+		this.apiThrottleMaxAttempts = apiThrottleMaxAttempts;
+	}
+
+	public int getApiRetryMaxAttempts() {
+		return apiRetryMaxAttempts;
+	}
+
+	public void setApiRetryMaxAttempts(int apiRetryMaxAttempts) {
+		this.apiRetryMaxAttempts = apiRetryMaxAttempts;
+	}
+
+	public Map<String, Integer> getApiRetryMaxAttemptsByOperation() {
+		return apiRetryMaxAttemptsByOperation;
+	}
+
+	public void setApiRetryMaxAttemptsByOperation(Map<String, Integer> apiRetryMaxAttemptsByOperation) {
+		this.apiRetryMaxAttemptsByOperation = apiRetryMaxAttemptsByOperation;
+	}
+
+	public long getApiRetryBackOff() {
+		return apiRetryBackOff;
+	}
+
+	public void setApiRetryBackOff(long apiRetryBackOff) {
+		this.apiRetryBackOff = apiRetryBackOff;
+	}
+
+	public int getApiCircuitBreakerFailureThreshold() {
+		return apiCircuitBreakerFailureThreshold;
+	}
+
+	public void setApiCircuitBreakerFailureThreshold(int apiCircuitBreakerFailureThreshold) {
+		this.apiCircuitBreakerFailureThreshold = apiCircuitBreakerFailureThreshold;
+	}
+
+	public long getApiCircuitBreakerOpenTimeout() {
+		return apiCircuitBreakerOpenTimeout;
+	}
+
+	public void setApiCircuitBreakerOpenTimeout(long apiCircuitBreakerOpenTimeout) {
+		this.apiCircuitBreakerOpenTimeout = apiCircuitBreakerOpenTimeout;
+	}
+
+	public String getArtifactCacheDirectory() {
+		return artifactCacheDirectory;
+	}
+
+	public void setArtifactCacheDirectory(String artifactCacheDirectory) {
+		this.artifactCacheDirectory = artifactCacheDirectory;
+	}
+
+	public long getArtifactCacheMaxSize() {
+		return artifactCacheMaxSize;
+	}
+
+	public void setArtifactCacheMaxSize(long artifactCacheMaxSize) {
+		this.artifactCacheMaxSize = artifactCacheMaxSize;
+	}
 }
@@ -26,6 +26,7 @@ import org.cloudfoundry.client.v3.applications.ListApplicationDropletsRequest;
 import org.cloudfoundry.client.v3.applications.ListApplicationDropletsResponse;
 import org.cloudfoundry.client.v3.applications.ListApplicationsRequest;
 import org.cloudfoundry.client.v3.applications.ListApplicationsResponse;
+import org.cloudfoundry.client.v3.droplets.CopyDropletRequest;
 import org.cloudfoundry.client.v3.droplets.Droplet;
 import org.cloudfoundry.client.v3.droplets.GetDropletRequest;
 import org.cloudfoundry.client.v3.packages.CreatePackageRequest;
@@ -36,37 +37,177 @@ import org.cloudfoundry.client.v3.packages.UploadPackageRequest;
 import org.cloudfoundry.client.v3.tasks.CancelTaskRequest;
 import org.cloudfoundry.client.v3.tasks.CreateTaskRequest;
 import org.cloudfoundry.client.v3.tasks.GetTaskRequest;
-import org.cloudfoundry.client.v3.tasks.GetTaskResponse;
 import org.cloudfoundry.client.v3.tasks.Task;
 import org.cloudfoundry.util.PaginationUtils;
 import org.cloudfoundry.util.ResourceUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
 import org.springframework.cloud.deployer.spi.task.LaunchState;
 import org.springframework.cloud.deployer.spi.task.TaskLauncher;
 import org.springframework.cloud.deployer.spi.task.TaskStatus;
+import org.springframework.core.io.Resource;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
+import java.security.DigestInputStream;
 import java.time.Duration;
-
-import static org.cloudfoundry.util.DelayUtils.exponentialBackOff;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.cloudfoundry.util.tuple.TupleUtils.consumer;
 import static org.cloudfoundry.util.tuple.TupleUtils.function;
 
 /**
  * @author Greg Turnquist
  */
-public class CloudFoundryTaskLauncher implements TaskLauncher {
+public class CloudFoundryTaskLauncher implements TaskLauncher, DisposableBean {
 
     private static final Logger logger = LoggerFactory
         .getLogger(CloudFoundryTaskLauncher.class);
 
+    private static final long ARTIFACT_DIGEST_TTL = TimeUnit.HOURS.toMillis(1);
+
+    private static final int ARTIFACT_DIGEST_CACHE_SIZE = 256;
+
     private final CloudFoundryClient client;
 
+    private final CloudFoundryDeployerProperties properties;
+
+    private final AdaptivePoller packagePoller;
+
+    private final AdaptivePoller dropletPoller;
+
+    /**
+     * Number of status requests that failed or gave up waiting on Cloud Foundry.
+     */
+    private final AtomicLong statusFailures = new AtomicLong();
+
+    /**
+     * Digest of the bits last uploaded for each application, by application name.
+     */
+    private final Map<String, String> uploadedDigests = new ConcurrentHashMap<>();
+
+    /**
+     * Digests of artifacts, by URI, content length and last modification time, so that an artifact is only read
+     * again to tell whether it changed once one of those did.
+     */
+    private final ExpiringCache<String, String> artifactDigests =
+        new ExpiringCache<>(ARTIFACT_DIGEST_TTL, ARTIFACT_DIGEST_CACHE_SIZE);
+
+    /**
+     * Droplets known to be staged, by artifact digest and buildpack.
+     */
+    private final Map<String, String> stagedDroplets = new ConcurrentHashMap<>();
+
+    /**
+     * Task applications staged and ready to run tasks, or {@literal null} if pooling is disabled.
+     */
+    private final WarmApplicationPool applicationPool;
+
+    /**
+     * Evicts idle applications from {@link #applicationPool}, or {@literal null} if there is no idle timeout.
+     */
+    private final ScheduledExecutorService poolEvictor;
+
+    /**
+     * Application ids, by application name.
+     */
+    private final ExpiringCache<String, String> applicationIds;
+
+    /**
+     * Space ids, by organization and space name.
+     */
+    private final ExpiringCache<String, String> spaceIds;
+
+    private final CloudFoundryApiMetrics metrics;
+
+    /**
+     * Wraps the calls made to Cloud Foundry with the configured pacing, circuit breaking and retries.
+     */
+    private final ApiCallDecorator calls;
+
+    private final StatusWatcher<TaskStatus> statusWatcher;
+
+    /**
+     * Local copies of remote artifacts, or {@literal null} if disabled.
+     */
+    private final ArtifactCache artifactCache;
+
+    /**
+     * Keeps the statuses of launched tasks up to date, or {@literal null} if disabled.
+     */
+    private final TaskStatusTracker statusTracker;
+
     public CloudFoundryTaskLauncher(CloudFoundryClient client) {
+        this(client, new CloudFoundryDeployerProperties());
+    }
+
+    public CloudFoundryTaskLauncher(CloudFoundryClient client, CloudFoundryDeployerProperties properties) {
+        this(client, properties, new ApiCallDecorator(
+            new CloudFoundryApiMetrics(new LoggingApiCallTracer(), properties.getTraceSampleRate()), properties));
+    }
+
+    public CloudFoundryTaskLauncher(CloudFoundryClient client, CloudFoundryDeployerProperties properties,
+                                    CloudFoundryApiMetrics metrics) {
+        this(client, properties, new ApiCallDecorator(metrics));
+    }
+
+    public CloudFoundryTaskLauncher(CloudFoundryClient client, CloudFoundryDeployerProperties properties,
+                                    ApiCallDecorator calls) {
         this.client = client;
+        this.properties = properties;
+        this.calls = calls;
+        this.metrics = calls.getMetrics();
+        metrics.gauge("launcher.status.failures", statusFailures::get);
+        this.statusWatcher = new StatusWatcher<>(this::statuses, TaskStatus::getState, CloudFoundryTaskLauncher::isFinished,
+            properties.getStatusWatchInterval(), "cloudfoundry-task-status-watcher");
+        metrics.gauge("launcher.status.watches", statusWatcher::getWatchCount);
+        this.artifactCache = ArtifactCache.create(properties, "tasks");
+        if (artifactCache != null) {
+            metrics.gauge("launcher.artifacts.size", artifactCache::getSize);
+            metrics.gauge("launcher.artifacts.count", artifactCache::getCount);
+            metrics.gauge("launcher.artifacts.hits", artifactCache::getHits);
+            metrics.gauge("launcher.artifacts.misses", artifactCache::getMisses);
+        }
+        if (properties.getTaskStatusRefreshInterval() > 0) {
+            this.statusTracker = new TaskStatusTracker(client, calls, this::mapTaskToStatus,
+                CloudFoundryTaskLauncher::isFinished, properties.getTaskStatusRefreshInterval(), properties.getApiTimeout());
+            metrics.gauge("launcher.status.tracked", statusTracker::getActiveCount);
+        } else {
+            this.statusTracker = null;
+        }
+        this.packagePoller = new AdaptivePoller(properties.getStagingPollMinDelay(), properties.getStagingPollMaxDelay(),
+            properties.getStagingPollTimeout(), properties.getStagingPollMaxAttempts());
+        this.dropletPoller = new AdaptivePoller(properties.getStagingPollMinDelay(), properties.getStagingPollMaxDelay(),
+            properties.getStagingPollTimeout(), properties.getStagingPollMaxAttempts());
+        this.applicationIds = new ExpiringCache<>(properties.getGuidCacheTtl(), properties.getGuidCacheMaxSize());
+        this.spaceIds = new ExpiringCache<>(properties.getGuidCacheTtl(), properties.getGuidCacheMaxSize());
+        if (properties.getTaskApplicationPoolSize() > 0) {
+            this.applicationPool = new WarmApplicationPool(properties.getTaskApplicationPoolSize(),
+                properties.getTaskApplicationIdleTimeout());
+        } else {
+            this.applicationPool = null;
+        }
+        if (applicationPool != null && properties.getTaskApplicationIdleTimeout() > 0) {
+            long period = Math.max(properties.getTaskApplicationIdleTimeout() / 10, 1000L);
+            this.poolEvictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "cloudfoundry-task-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.poolEvictor.scheduleWithFixedDelay(
+                () -> deletePooledApplications(applicationPool.evictIdle()), period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.poolEvictor = null;
+        }
     }
 
     @Override
@@ -94,7 +235,21 @@ public class CloudFoundryTaskLauncher implements TaskLauncher {
     }
 
     /**
-     * Lookup the current status based on task id.
+     * Stage the application for a task ahead of time and keep it in the pool of ready applications, so that launching
+     * it later only takes creating the task. Has no effect on the pool if pooling is disabled.
+     *
+     * @param request
+     */
+    public void prepare(AppDeploymentRequest request) {
+
+        asyncPrepare(request).subscribe();
+    }
+
+    /**
+     * Lookup the current status based on task id. Statuses kept up to date in the background (see
+     * {@link CloudFoundryDeployerProperties#getTaskStatusRefreshInterval()}) are served without any request. If Cloud
+     * Foundry does not answer within the configured {@link CloudFoundryDeployerProperties#getApiTimeout() timeout},
+     * report {@link LaunchState#unknown}.
      *
      * @param id
      * @return
@@ -102,53 +257,175 @@ public class CloudFoundryTaskLauncher implements TaskLauncher {
     @Override
     public TaskStatus status(String id) {
 
-        return asyncStatus(id).get(Duration.ofSeconds(30));
+        TaskStatus tracked = trackedStatus(id);
+        if (tracked != null) {
+            return tracked;
+        }
+        Duration timeout = Duration.ofMillis(properties.getApiTimeout());
+        try {
+            return asyncStatus(id).get(timeout);
+        } catch (RuntimeException e) {
+            logger.warn("Could not resolve the status of task {} within {}", id, timeout, e);
+            statusFailures.incrementAndGet();
+            return new TaskStatus(id, LaunchState.unknown, null);
+        }
+    }
+
+    /**
+     * Watch the status of a task, instead of polling {@link #status(String)}. The returned {@link Flux} emits the
+     * current status, then each status whose {@link LaunchState} differs from the previous one, and completes once
+     * the task is finished. All watches share a single polling loop.
+     *
+     * @param id
+     * @return
+     */
+    public Flux<TaskStatus> watch(String id) {
+
+        return statusWatcher.watch(id);
+    }
+
+    /**
+     * @return the number of status requests that failed or timed out, and were answered with
+     * {@link LaunchState#unknown}
+     */
+    public long getStatusFailures() {
+        return statusFailures.get();
     }
 
     Mono<Void> asyncCancel(String id) {
 
-        return client.applicationsV3()
-            .list(ListApplicationsRequest.builder()
-                .name(id)
-                .page(1)
-                .build())
-            .log("stream.listApplications")
-            .flatMap(response -> Flux.fromIterable(response.getResources()))
-            .log("stream.applications")
-            .singleOrEmpty()
-            .log("stream.singleOrEmpty")
-            .map(Application::getId)
-            .log("stream.taskIds")
-            .then(taskId -> client.tasks()
+        return getApplicationId(id)
+            .then(taskId -> calls.decorate("cancelTask", client.tasks()
                 .cancel(CancelTaskRequest.builder()
                     .taskId(taskId)
-                    .build())
-                .log("stream.cancelTask"))
+                    .build())))
+            .doOnError(e -> applicationIds.invalidate(id))
             .after();
     }
 
+    @Override
+    public void destroy() {
+
+        if (poolEvictor != null) {
+            poolEvictor.shutdownNow();
+        }
+        statusWatcher.shutdown();
+        if (statusTracker != null) {
+            statusTracker.shutdown();
+        }
+    }
+
+    /**
+     * Launch a task, straight away if its application is in the pool of ready applications and its artifact has not
+     * changed. Otherwise (or if the pooled application turns out to be gone) deploy first. Nothing happens, not even
+     * digesting the artifact, until the returned {@link Mono} is subscribed to.
+     */
     Mono<String> asyncLaunch(AppDeploymentRequest request) {
 
-        return deploy(request)
-            .then(this::launchTask);
+        String name = request.getDefinition().getName();
+        TaskArtifact artifact = new TaskArtifact(request);
+        return Mono.defer(() -> {
+            String pooledApplicationId = applicationPool == null ? null : applicationPool.acquire(name);
+            if (pooledApplicationId == null || !isUnchanged(name, artifact)) {
+                return asyncPrepare(request, artifact)
+                    .then(applicationId -> launchTask(name, applicationId));
+            }
+            return launchTask(name, pooledApplicationId)
+                .otherwise(throwable -> {
+                    logger.warn("Could not launch task on pooled application {}, deploying it again: {}", name, throwable.getMessage());
+                    applicationPool.remove(name);
+                    applicationIds.invalidate(name);
+                    return asyncPrepare(request, artifact)
+                        .then(applicationId -> launchTask(name, applicationId));
+                });
+        });
+    }
+
+    private Mono<String> launchTask(String name, String applicationId) {
+
+        return launchTask(applicationId)
+            .doOnSuccess(taskName -> {
+                if (statusTracker != null) {
+                    statusTracker.track(name, applicationId);
+                }
+            });
+    }
+
+    Mono<String> asyncPrepare(AppDeploymentRequest request) {
+
+        return asyncPrepare(request, new TaskArtifact(request));
+    }
+
+    private Mono<String> asyncPrepare(AppDeploymentRequest request, TaskArtifact artifact) {
+
+        return deploy(request, artifact)
+            .doOnSuccess(applicationId -> addToPool(request.getDefinition().getName(), applicationId));
+    }
+
+    private void addToPool(String name, String applicationId) {
+
+        if (applicationPool != null && applicationId != null) {
+            deletePooledApplications(applicationPool.add(name, applicationId));
+        }
+    }
+
+    private void deletePooledApplications(Map<String, String> evicted) {
+
+        evicted.forEach((name, applicationId) -> {
+            applicationIds.invalidate(name);
+            untrack(name);
+            requestDeleteApplication(applicationId)
+                .doOnSuccess(v -> logger.info("Deleted application {} evicted from task application pool", name))
+                .doOnError(e -> logger.error("Failed to delete application {} evicted from task application pool", name, e))
+                .subscribe();
+        });
+    }
+
+    /**
+     * Look up the statuses of several tasks at once, for {@link #statusWatcher}. Fails if any lookup does, rather than
+     * answering {@link LaunchState#unknown}, so that watchers keep the last known state.
+     */
+    private Map<String, TaskStatus> statuses(Collection<String> ids) {
+
+        Map<String, TaskStatus> statuses = new ConcurrentHashMap<>();
+        Flux.fromIterable(ids)
+            .flatMap(id -> {
+                TaskStatus tracked = trackedStatus(id);
+                return (tracked != null ? Mono.just(tracked) : strictStatus(id))
+                    .doOnSuccess(status -> statuses.put(id, status));
+            })
+            .after()
+            .get(Duration.ofMillis(properties.getApiTimeout()));
+        return statuses;
+    }
+
+    private static boolean isFinished(TaskStatus status) {
+
+        switch (status.getState()) {
+            case complete:
+            case failed:
+            case cancelled:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private TaskStatus trackedStatus(String id) {
+
+        return statusTracker == null ? null : statusTracker.get(id);
+    }
+
+    private void untrack(String name) {
+
+        if (statusTracker != null) {
+            statusTracker.untrack(name);
+        }
     }
 
     Mono<TaskStatus> asyncStatus(String id) {
 
-        return client.applicationsV3()
-            .list(ListApplicationsRequest.builder()
-                .name(id)
-                .page(1)
-                .build())
-            .log("stream.listApplications")
-            .flatMap(response -> Flux.fromIterable(response.getResources()))
-            .single()
-            .map(Application::getId)
-            .then(taskId -> client.tasks()
-                .get(GetTaskRequest.builder()
-                    .taskId(taskId)
-                    .build()))
-            .map(this::mapTaskToStatus)
+        return strictStatus(id)
             .otherwise(throwable -> {
                 logger.error(throwable.getMessage());
                 return Mono.just(new TaskStatus(id, LaunchState.unknown, null));
@@ -156,45 +433,127 @@ public class CloudFoundryTaskLauncher implements TaskLauncher {
     }
 
     /**
-     * Create a new application using supplied {@link AppDeploymentRequest}.
+     * Look up the status of a task, which is {@link LaunchState#unknown} if its application does not exist. Any other
+     * failure is propagated.
+     */
+    private Mono<TaskStatus> strictStatus(String id) {
+
+        return getApplicationId(id)
+            .then(applicationId -> calls.decorate("status", client.tasks()
+                .get(GetTaskRequest.builder()
+                    .taskId(applicationId)
+                    .build()))
+                .map(this::mapTaskToStatus)
+                .doOnSuccess(status -> {
+                    if (statusTracker != null && status != null) {
+                        statusTracker.update(id, applicationId, status);
+                    }
+                }))
+            .otherwiseIfEmpty(Mono.just(new TaskStatus(id, LaunchState.unknown, null)))
+            .doOnError(throwable -> applicationIds.invalidate(id));
+    }
+
+    /**
+     * Create a new application using supplied {@link AppDeploymentRequest}. When droplet reuse is enabled and a
+     * droplet was already staged from the same artifact and buildpack, it is copied into the new application instead of
+     * uploading and staging the bits again.
      *
      * @param request
-     * @return {@link Mono} containing the newly created {@link Droplet}'s id
+     * @param artifact the artifact of the request
+     * @return {@link Mono} containing the newly created application's id
      */
-    Mono<String> createAndUploadApplication(AppDeploymentRequest request) {
+    Mono<String> createAndUploadApplication(AppDeploymentRequest request, TaskArtifact artifact) {
 
         return createApplication(request.getDefinition().getName(), getSpaceId(request))
-            .then(applicationId -> createPackage(applicationId)
-                .and(Mono.just(applicationId)))
-            .then(function((packageId, applicationId) -> uploadPackage(packageId, request)
-                .and(Mono.just(applicationId))))
-            .then(function((packageId, applicationId) -> waitForPackageProcessing(client, packageId)
-                .and(Mono.just(applicationId))))
-            .then(function((packageId, applicationId) -> createDroplet(packageId)
-                .and(Mono.just(applicationId))))
-            .then(function((dropletId, applicationId) -> waitForDropletProcessing(client, dropletId)
-                .and(Mono.just(applicationId))))
-            .map(function((dropletId, applicationId) -> applicationId));
-    }
-
-    private static Mono<String> waitForDropletProcessing(CloudFoundryClient cloudFoundryClient, String dropletId) {
-        return cloudFoundryClient.droplets()
+            .then(applicationId -> {
+                String dropletKey = dropletKey(artifact);
+                return reuseDroplet(dropletKey, applicationId, artifact.contentLength())
+                    .otherwiseIfEmpty(uploadAndStage(request, artifact, applicationId, dropletKey));
+            });
+    }
+
+    private Mono<String> uploadAndStage(AppDeploymentRequest request, TaskArtifact artifact, String applicationId,
+                                        String dropletKey) {
+
+        return createPackage(applicationId)
+            .and(Mono.just(applicationId))
+            .then(function((packageId, applicationId2) -> uploadPackage(packageId, request, artifact)
+                .and(Mono.just(applicationId2))))
+            .then(function((packageId, applicationId2) -> waitForPackageProcessing(packageId, artifact.contentLength())
+                .and(Mono.just(applicationId2))))
+            .then(function((packageId, applicationId2) -> createDroplet(packageId)
+                .and(Mono.just(applicationId2))))
+            .then(function((dropletId, applicationId2) -> waitForDropletProcessing(dropletId, artifact.contentLength())
+                .and(Mono.just(applicationId2))))
+            .doOnSuccess(consumer((dropletId, applicationId2) -> rememberDroplet(dropletKey, dropletId)))
+            .map(function((dropletId, applicationId2) -> applicationId2));
+    }
+
+    /**
+     * Copy the droplet previously staged for the same key into the given application.
+     *
+     * @return {@link Mono} with the applicationId, empty if there is no droplet to reuse or copying it failed
+     */
+    private Mono<String> reuseDroplet(String dropletKey, String applicationId, long size) {
+
+        String dropletId = dropletKey == null ? null : stagedDroplets.get(dropletKey);
+        if (dropletId == null) {
+            return Mono.empty();
+        }
+        return calls.decorate("copyDroplet", client.droplets()
+            .copy(CopyDropletRequest.builder()
+                .dropletId(dropletId)
+                .applicationId(applicationId)
+                .build()))
+            .map(Droplet::getId)
+            .then(copyId -> waitForDropletProcessing(copyId, size))
+            .map(copyId -> applicationId)
+            .otherwise(throwable -> {
+                logger.warn("Could not reuse droplet {}, staging instead: {}", dropletId, throwable.getMessage());
+                stagedDroplets.remove(dropletKey, dropletId);
+                return Mono.empty();
+            });
+    }
+
+    private void rememberDroplet(String dropletKey, String dropletId) {
+
+        if (dropletKey != null) {
+            stagedDroplets.put(dropletKey, dropletId);
+        }
+    }
+
+    /**
+     * @return the key under which droplets staged from the request's artifact are indexed, or {@literal null} when
+     * droplet reuse is disabled or the artifact can't be fingerprinted
+     */
+    private String dropletKey(TaskArtifact artifact) {
+
+        if (!properties.isReuseDroplets()) {
+            return null;
+        }
+        try {
+            return artifact.digest() + "|" + properties.getBuildpack();
+        } catch (IOException e) {
+            logger.warn("Could not compute digest of {}, not reusing droplets", artifact, e);
+            return null;
+        }
+    }
+
+    private Mono<String> waitForDropletProcessing(String dropletId, long size) {
+        return dropletPoller.poll(size, calls.decorate("getDroplet", client.droplets()
             .get(GetDropletRequest.builder()
                 .dropletId(dropletId)
-                .build())
-            .log("stream.waitingForDroplet")
-            .where(response -> !response.getState().equals("PENDING"))
-            .repeatWhenEmpty(50, exponentialBackOff(Duration.ofSeconds(10), Duration.ofMinutes(1), Duration.ofMinutes(10)))
+                .build()))
+            .where(response -> !response.getState().equals("PENDING")))
             .map(response -> dropletId);
     }
 
-    private static Mono<String> waitForPackageProcessing(CloudFoundryClient cloudFoundryClient, String packageId) {
-        return cloudFoundryClient.packages()
+    private Mono<String> waitForPackageProcessing(String packageId, long size) {
+        return packagePoller.poll(size, calls.decorate("getPackage", client.packages()
             .get(GetPackageRequest.builder()
                 .packageId(packageId)
-                .build())
-            .where(response -> response.getState().equals("READY"))
-            .repeatWhenEmpty(50, exponentialBackOff(Duration.ofSeconds(5), Duration.ofMinutes(1), Duration.ofMinutes(10)))
+                .build()))
+            .where(response -> response.getState().equals("READY")))
             .map(response -> packageId);
     }
 
@@ -208,17 +567,16 @@ public class CloudFoundryTaskLauncher implements TaskLauncher {
     Mono<String> createApplication(String name, Mono<String> spaceId) {
 
         return spaceId
-            .flatMap(spaceId2 -> client.applicationsV3()
+            .flatMap(spaceId2 -> calls.decorate("createApplication", client.applicationsV3()
                 .create(CreateApplicationRequest.builder()
                     .name(name)
                     .relationship("space", Relationship.builder()
                         .id(spaceId2)
                         .build())
-                    .build()))
+                    .build())))
             .single()
-            .log("stream.createApplication")
             .map(Application::getId)
-            .log("stream.getApplicationId");
+            .doOnSuccess(applicationId -> applicationIds.put(name, applicationId));
     }
 
     /**
@@ -229,46 +587,68 @@ public class CloudFoundryTaskLauncher implements TaskLauncher {
      */
     Mono<String> createPackage(String applicationId) {
 
-        return client.packages()
+        return calls.decorate("createPackage", client.packages()
             .create(CreatePackageRequest.builder()
                 .applicationId(applicationId)
                 .type(CreatePackageRequest.PackageType.BITS)
-                .build())
-            .log("stream.createPackage")
-            .map(Package::getId)
-            .log("stream.getPackageId");
+                .build()))
+            .map(Package::getId);
     }
 
     /**
-     * Create an application with a package, then upload the bits into a staging.
+     * Create an application with a package, then upload the bits into a staging. An existing, staged application is
+     * reused as long as the artifact has not changed since it was uploaded. If that fails, the cached application id
+     * is dropped, in case the application was deleted behind our back.
      *
      * @param request
+     * @param artifact the artifact of the request
      * @return {@link Mono} with the applicationId
      */
-    Mono<String> deploy(AppDeploymentRequest request) {
-        return getApplicationId(client, request.getDefinition().getName())
-            .then(applicationId -> getReadyApplicationId(client, applicationId)
-                .otherwiseIfEmpty(deleteExistingApplication(client, applicationId)))
-            .otherwiseIfEmpty(createAndUploadApplication(request));
+    Mono<String> deploy(AppDeploymentRequest request, TaskArtifact artifact) {
+        String name = request.getDefinition().getName();
+        return getApplicationId(name)
+            .then(applicationId -> (isUnchanged(name, artifact) ? getReadyApplicationId(applicationId) : Mono.<String>empty())
+                .otherwiseIfEmpty(deleteExistingApplication(name, applicationId)))
+            .otherwiseIfEmpty(createAndUploadApplication(request, artifact))
+            .doOnError(e -> applicationIds.invalidate(name));
+    }
+
+    /**
+     * Tell whether the artifact of the request has the same content as the bits last uploaded for that application.
+     * Only computes a digest if there is one to compare with, and gives the benefit of the doubt when nothing is known.
+     */
+    private boolean isUnchanged(String name, TaskArtifact artifact) {
+        String uploaded = uploadedDigests.get(name);
+        if (uploaded == null) {
+            return true;
+        }
+        try {
+            return uploaded.equals(artifact.digest());
+        } catch (IOException e) {
+            logger.warn("Could not compute digest of {}, assuming it changed", artifact, e);
+            return false;
+        }
     }
 
     Mono<String> getSpaceId(AppDeploymentRequest request) {
 
+        String key = request.getEnvironmentProperties().get("organization") + "/" + request.getEnvironmentProperties().get("space");
+        String cached = spaceIds.get(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
         return Mono
             .just(request.getEnvironmentProperties().get("organization"))
             .flatMap(organization -> PaginationUtils
-                .requestResources(page -> client.spaces()
+                .requestResources(page -> calls.decorate("listSpaces", client.spaces()
                     .list(ListSpacesRequest.builder()
                         .name(request.getEnvironmentProperties().get("space"))
                         .page(page)
-                        .build())))
-            .log("stream.listSpaces")
+                        .build()))))
             .single()
-            .log("stream.space")
             .map(ResourceUtils::getId)
-            .log("stream.spaceId")
-            .cache()
-            .log("stream.cacheSpaceId");
+            .doOnSuccess(spaceId -> spaceIds.put(key, spaceId))
+            .cache();
     }
 
     /**
@@ -278,100 +658,129 @@ public class CloudFoundryTaskLauncher implements TaskLauncher {
      * @return {@link Mono} containing name of the task that was launched
      */
     Mono<String> launchTask(String applicationId) {
-        return client.tasks()
+        return calls.decorate("createTask", client.tasks()
             .create(CreateTaskRequest.builder()
                 .applicationId(applicationId)
                 .name("timestamp")
                 .command("java -jar")
-                .build())
-            .log("stream.createTask")
-            .map(Task::getName)
-            .log("stream.taskName");
+                .build()))
+            .map(Task::getName);
     }
 
     /**
-     * Upload bits to a Cloud Foundry application by packageId.
+     * Upload bits to a Cloud Foundry application by packageId. A failed upload may be retried, sending all the bits
+     * again.
      *
      * @param packageId
      * @param request
+     * @param artifact the artifact of the request
      * @return packageId
      */
-    Mono<String> uploadPackage(String packageId, AppDeploymentRequest request) {
-
-        try {
+    Mono<String> uploadPackage(String packageId, AppDeploymentRequest request, TaskArtifact artifact) {
+
+        String name = request.getDefinition().getName();
+        // the bits are opened anew each time the upload is attempted, as a failed attempt leaves the stream consumed
+        return calls.decorate("upload", Mono.defer(() -> {
+            ProgressInputStream progress;
+            try {
+                progress = UploadStreams.open(artifact.resource(), properties.getUploadChunkSize(), name,
+                    bytes -> metrics.increment("api.upload.bytes", bytes));
+            } catch (IOException e) {
+                return Mono.error(e);
+            }
+            DigestInputStream bits = ResourceDigests.digestingStream(progress);
             return client.packages()
                 .upload(UploadPackageRequest.builder()
                     .packageId(packageId)
-                    .bits(request.getResource().getInputStream())
+                    .bits(bits)
                     .build())
-                .log("stream.uploadPackage")
-                .map(Package::getId)
-                .log("stream.uploadedPackageId");
-        } catch (IOException e) {
-            return Mono.error(e);
-        }
+                .doOnSuccess(p -> {
+                    String digest = ResourceDigests.toHex(bits.getMessageDigest());
+                    artifact.remember(digest);
+                    uploadedDigests.put(name, digest);
+                })
+                .doOnError(e -> logger.warn("Upload of {} failed after {} of {} bytes", name, progress.getCount(),
+                    progress.getTotal()));
+        }))
+            .map(Package::getId);
     }
 
-    private static Mono<String> deleteExistingApplication(CloudFoundryClient client, String applicationId) {
-        return requestDeleteApplication(client, applicationId)
-            .after(Mono::empty);
+    /**
+     * Delete an application to deploy it again, forgetting about it only once the returned {@link Mono} is subscribed
+     * to, as it is assembled whether or not the application turns out to be reusable.
+     */
+    private Mono<String> deleteExistingApplication(String name, String applicationId) {
+        return Mono.defer(() -> {
+            applicationIds.invalidate(name);
+            untrack(name);
+            if (applicationPool != null) {
+                applicationPool.remove(name);
+            }
+            return requestDeleteApplication(applicationId)
+                .after(Mono::empty);
+        });
     }
 
     /**
-     * Look up the applicationId for a given app and confine results to 0 or 1 instance
+     * Look up the applicationId for a given app and confine results to 0 or 1 instance. Ids already resolved are
+     * served from cache.
      *
-     * @param client
      * @param name
      * @return {@link Mono} with the application's id
      */
-    private static Mono<String> getApplicationId(CloudFoundryClient client, String name) {
+    private Mono<String> getApplicationId(String name) {
 
-        return requestListApplications(client, name)
+        String cached = applicationIds.get(name);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return requestListApplications(name)
             .singleOrEmpty()
-            .map(Application::getId);
+            .map(Application::getId)
+            .doOnSuccess(applicationId -> {
+                if (applicationId != null) {
+                    applicationIds.put(name, applicationId);
+                }
+            });
     }
 
-    private static Mono<String> getReadyApplicationId(CloudFoundryClient client, String applicationId) {
-        return requestApplicationDroplets(client, applicationId)
+    private Mono<String> getReadyApplicationId(String applicationId) {
+        return requestApplicationDroplets(applicationId)
             .filter(resource -> "STAGED" .equals(resource.getState()))
             .next()
             .map(resource -> applicationId);
     }
 
-    private static Flux<ListApplicationDropletsResponse.Resource> requestApplicationDroplets(CloudFoundryClient client, String applicationId) {
-        return client.applicationsV3()
+    private Flux<ListApplicationDropletsResponse.Resource> requestApplicationDroplets(String applicationId) {
+        return calls.decorate("listDroplets", client.applicationsV3()
             .listDroplets(ListApplicationDropletsRequest.builder()
                 .applicationId(applicationId)
                 .page(1)
-                .build())
+                .build()))
             .flatMap(response -> Flux.fromIterable(response.getResources()));
     }
 
-    private static Mono<Void> requestDeleteApplication(CloudFoundryClient client, String applicationId) {
-        return client.applicationsV3()
+    private Mono<Void> requestDeleteApplication(String applicationId) {
+        return calls.decorate("deleteApplication", client.applicationsV3()
             .delete(DeleteApplicationRequest.builder()
                 .applicationId(applicationId)
-                .build());
+                .build()));
     }
 
     /**
      * List ALL application entries filtered to the provided name
      *
-     * @param client
      * @param name
      * @return {@link Flux} of application resources {@link ListApplicationsResponse.Resource}
      */
-    private static Flux<ListApplicationsResponse.Resource> requestListApplications(
-        CloudFoundryClient client, String name) {
+    private Flux<ListApplicationsResponse.Resource> requestListApplications(String name) {
 
-        return client.applicationsV3()
+        return calls.decorate("listApplications", client.applicationsV3()
             .list(ListApplicationsRequest.builder()
                 .name(name)
                 .page(1)
-                .build())
-            .log("stream.listApplications")
-            .flatMap(response -> Flux.fromIterable(response.getResources()))
-            .log("stream.applications");
+                .build()))
+            .flatMap(response -> Flux.fromIterable(response.getResources()));
     }
 
     /**
@@ -382,32 +791,119 @@ public class CloudFoundryTaskLauncher implements TaskLauncher {
      */
     private Mono<String> createDroplet(String packageId) {
 
-        return client.packages()
+        return calls.decorate("stage", client.packages()
             .stage(StagePackageRequest.builder()
                 .packageId(packageId)
-                .build())
-            .log("stream.stageDroplet")
-            .map(Droplet::getId)
-            .log("stream.dropletId");
+                .build()))
+            .map(Droplet::getId);
     }
 
-    private TaskStatus mapTaskToStatus(GetTaskResponse getTaskResponse) {
+    private TaskStatus mapTaskToStatus(Task task) {
 
-        switch (getTaskResponse.getState()) {
+        switch (task.getState()) {
             case Task.SUCCEEDED_STATE:
-                return new TaskStatus(getTaskResponse.getId(), LaunchState.complete, null);
+                return new TaskStatus(task.getId(), LaunchState.complete, null);
             case Task.RUNNING_STATE:
-                return new TaskStatus(getTaskResponse.getId(), LaunchState.running, null);
+                return new TaskStatus(task.getId(), LaunchState.running, null);
             case Task.PENDING_STATE:
-                return new TaskStatus(getTaskResponse.getId(), LaunchState.launching, null);
+                return new TaskStatus(task.getId(), LaunchState.launching, null);
             case Task.CANCELING_STATE:
-                return new TaskStatus(getTaskResponse.getId(), LaunchState.cancelled, null);
+                return new TaskStatus(task.getId(), LaunchState.cancelled, null);
             case Task.FAILED_STATE:
-                return new TaskStatus(getTaskResponse.getId(), LaunchState.failed, null);
+                return new TaskStatus(task.getId(), LaunchState.failed, null);
             default:
                 throw new IllegalStateException(
-                    "Unsupported CF task state " + getTaskResponse.getState());
+                    "Unsupported CF task state " + task.getState());
         }
     }
 
+    /**
+     * The artifact of a request, resolved (from the local cache if enabled), sized and digested at most once per
+     * launch however many steps need it.
+     */
+    final class TaskArtifact {
+
+        private final Resource requested;
+
+        private Resource resource;
+
+        private Long contentLength;
+
+        private String digestKey;
+
+        private String digest;
+
+        private TaskArtifact(AppDeploymentRequest request) {
+            this.requested = request.getResource();
+        }
+
+        synchronized Resource resource() throws IOException {
+            if (resource == null) {
+                resource = artifactCache == null ? requested : artifactCache.resolve(requested);
+            }
+            return resource;
+        }
+
+        /**
+         * @return the size of the artifact, or -1 if unknown
+         */
+        synchronized long contentLength() {
+            if (contentLength == null) {
+                try {
+                    contentLength = resource().contentLength();
+                } catch (IOException e) {
+                    contentLength = -1L;
+                }
+            }
+            return contentLength;
+        }
+
+        /**
+         * Return the digest of the artifact, only reading it through if no digest is known for the same URI, content
+         * length and last modification time.
+         */
+        synchronized String digest() throws IOException {
+            if (digest == null) {
+                String key = digestKey();
+                digest = key == null ? null : artifactDigests.get(key);
+                if (digest == null) {
+                    remember(ResourceDigests.digest(resource()));
+                }
+            }
+            return digest;
+        }
+
+        /**
+         * Remember the digest of the artifact, as computed while uploading it.
+         */
+        synchronized void remember(String digest) {
+            this.digest = digest;
+            String key = digestKey();
+            if (key != null) {
+                artifactDigests.put(key, digest);
+            }
+        }
+
+        /**
+         * @return the key the digest of the artifact is remembered under, or {@literal null} if it can't be told apart
+         * from other content at the same location, for lack of a URI or of a last modification time
+         */
+        private String digestKey() {
+            if (digestKey == null) {
+                try {
+                    Resource resource = resource();
+                    long lastModified = resource.lastModified();
+                    digestKey = lastModified > 0 ? resource.getURI() + "|" + contentLength() + "|" + lastModified : "";
+                } catch (IOException e) {
+                    digestKey = "";
+                }
+            }
+            return digestKey.isEmpty() ? null : digestKey;
+        }
+
+        @Override
+        public String toString() {
+            return requested.toString();
+        }
+    }
 }
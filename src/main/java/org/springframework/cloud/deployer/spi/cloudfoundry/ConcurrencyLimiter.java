@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+/**
+ * Lets at most a fixed number of calls run at a time, queueing the others in order of subscription. A call frees its
+ * slot once, when it completes, fails or is cancelled; a call cancelled while queued never takes one.
+ *
+ * @author agent
+ */
+class ConcurrencyLimiter {
+
+	private final int maxConcurrency;
+
+	private final Queue<Runnable> waiting = new ArrayDeque<>();
+
+	private int running;
+
+	/**
+	 * @param maxConcurrency the maximum number of calls to run concurrently, at least 1
+	 */
+	ConcurrencyLimiter(int maxConcurrency) {
+		if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException(String.format(
+				"The maximum number of concurrent calls must be at least 1, was %d", maxConcurrency));
+		}
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	/**
+	 * Return a {@link Mono} that, each time it is subscribed to, waits for a free slot before assembling and
+	 * subscribing to the call.
+	 */
+	public <T> Mono<T> limit(Supplier<Mono<T>> call) {
+		return Mono.defer(() -> {
+			MonoProcessor<T> result = MonoProcessor.create();
+			AtomicBoolean released = new AtomicBoolean();
+			Runnable start = () -> {
+				Mono<T> mono;
+				try {
+					mono = call.get();
+				}
+				catch (RuntimeException e) {
+					release(released);
+					result.onError(e);
+					return;
+				}
+				mono
+					.doOnSuccess(t -> release(released))
+					.doOnError(e -> release(released))
+					.subscribe(result);
+			};
+			if (acquireOrQueue(start)) {
+				start.run();
+			}
+			return result
+				.doOnCancel(() -> {
+					if (!dequeue(start)) {
+						release(released);
+					}
+				});
+		});
+	}
+
+	/**
+	 * Return the number of calls waiting for a slot.
+	 */
+	public synchronized int getWaiting() {
+		return waiting.size();
+	}
+
+	private synchronized boolean acquireOrQueue(Runnable start) {
+		if (running < maxConcurrency) {
+			running++;
+			return true;
+		}
+		waiting.add(start);
+		return false;
+	}
+
+	/**
+	 * Take a call that has not started yet off the queue.
+	 *
+	 * @return whether the call was still waiting
+	 */
+	private synchronized boolean dequeue(Runnable start) {
+		return waiting.remove(start);
+	}
+
+	/**
+	 * Hand the slot of a call over to the next waiting call, if any, unless already done.
+	 */
+	private void release(AtomicBoolean released) {
+		if (!released.compareAndSet(false, true)) {
+			return;
+		}
+		Runnable next;
+		synchronized (this) {
+			next = waiting.poll();
+			if (next == null) {
+				running--;
+			}
+		}
+		if (next != null) {
+			next.run();
+		}
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Mono;
+
+/**
+ * Queues deployment pipelines and runs at most a fixed number of them at a time.
+ *
+ * <p>Pending pipelines are queued per group (typically a stream) and groups are served in turn, so that one large
+ * group being deployed does not starve the others.</p>
+ *
+ * <p>Each pipeline deploys one id, reserved before the pipeline is queued and until it is done, so that the same app
+ * is never queued twice.</p>
+ *
+ * @author agent
+ */
+class DeploymentScheduler {
+
+	private static final Log logger = LogFactory.getLog(DeploymentScheduler.class);
+
+	private final int maxInFlight;
+
+	/**
+	 * Pending pipelines per group. Iteration order is the order in which groups will next be served.
+	 */
+	private final Map<String, Queue<Pipeline>> pending = new LinkedHashMap<>();
+
+	/**
+	 * Ids reserved for a deployment, queued or running.
+	 */
+	private final Set<String> reserved = new HashSet<>();
+
+	private int inFlight;
+
+	/**
+	 * Number of times {@link #drain()} was asked for since the current drain loop started, or 0 if none is running.
+	 */
+	private final AtomicInteger drainRequests = new AtomicInteger();
+
+	/**
+	 * @param maxInFlight the maximum number of pipelines to run concurrently, at least 1
+	 */
+	DeploymentScheduler(int maxInFlight) {
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException(String.format(
+				"The maximum number of concurrent deployments must be at least 1, was %d", maxInFlight));
+		}
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * Reserve the given ids for deployments about to be submitted, all of them or none.
+	 *
+	 * @throws IllegalStateException if any of them is already reserved
+	 */
+	public synchronized void reserve(Collection<String> ids) {
+		for (String id : ids) {
+			if (reserved.contains(id)) {
+				throw new IllegalStateException(String.format("App %s is already being deployed", id));
+			}
+		}
+		reserved.addAll(ids);
+	}
+
+	/**
+	 * Give up ids reserved by {@link #reserve(Collection)} and not submitted after all.
+	 */
+	public synchronized void cancel(Collection<String> ids) {
+		reserved.removeAll(ids);
+	}
+
+	/**
+	 * Queue a pipeline for the given group. The pipeline is only assembled (by calling the supplier) and subscribed
+	 * to once a slot becomes available. Its id is given up once it is done.
+	 *
+	 * @param id the id the pipeline deploys, reserved beforehand
+	 */
+	public void submit(String group, String id, Supplier<Mono<Void>> pipeline) {
+		synchronized (this) {
+			pending.computeIfAbsent(group, g -> new ArrayDeque<>()).add(new Pipeline(id, pipeline));
+		}
+		drain();
+	}
+
+	/**
+	 * Return the number of pipelines waiting for a slot.
+	 */
+	public synchronized int getQueueDepth() {
+		int depth = 0;
+		for (Queue<?> queue : pending.values()) {
+			depth += queue.size();
+		}
+		return depth;
+	}
+
+	/**
+	 * Return the number of pipelines waiting for a slot, per group.
+	 */
+	public synchronized Map<String, Integer> getQueueDepths() {
+		Map<String, Integer> depths = new LinkedHashMap<>();
+		pending.forEach((group, queue) -> depths.put(group, queue.size()));
+		return depths;
+	}
+
+	/**
+	 * Return the number of pipelines currently running.
+	 */
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * Start as many pipelines as there are free slots. Pipelines completing right away release their slot from
+	 * within this method, so rather than recursing, a drain asked for while one is running makes that one loop once
+	 * more.
+	 */
+	private void drain() {
+		if (drainRequests.getAndIncrement() != 0) {
+			return;
+		}
+		int requests = 1;
+		do {
+			for (Pipeline pipeline : claimRunnable()) {
+				start(pipeline);
+			}
+			requests = drainRequests.addAndGet(-requests);
+		}
+		while (requests != 0);
+	}
+
+	private void start(Pipeline pipeline) {
+		AtomicBoolean released = new AtomicBoolean();
+		try {
+			pipeline.supplier.get()
+				.doOnSuccess(v -> release(pipeline, released))
+				.doOnError(e -> release(pipeline, released))
+				.doOnCancel(() -> release(pipeline, released))
+				.doOnError(e -> logger.error(String.format("Deployment pipeline of %s failed", pipeline.id), e))
+				.subscribe();
+		}
+		catch (RuntimeException e) {
+			logger.error(String.format("Failed to start deployment pipeline of %s", pipeline.id), e);
+			release(pipeline, released);
+		}
+	}
+
+	/**
+	 * Take as many pipelines as there are free slots, one group at a time, moving each served group to the back of
+	 * the line.
+	 */
+	private synchronized List<Pipeline> claimRunnable() {
+		List<Pipeline> runnable = new ArrayList<>();
+		while (inFlight < maxInFlight && !pending.isEmpty()) {
+			Iterator<Map.Entry<String, Queue<Pipeline>>> it = pending.entrySet().iterator();
+			Map.Entry<String, Queue<Pipeline>> next = it.next();
+			it.remove();
+			runnable.add(next.getValue().remove());
+			if (!next.getValue().isEmpty()) {
+				pending.put(next.getKey(), next.getValue());
+			}
+			inFlight++;
+		}
+		return runnable;
+	}
+
+	/**
+	 * Free the slot and the id of a pipeline, unless already done, and start the next ones.
+	 */
+	private void release(Pipeline pipeline, AtomicBoolean released) {
+		if (!released.compareAndSet(false, true)) {
+			return;
+		}
+		synchronized (this) {
+			inFlight--;
+			reserved.remove(pipeline.id);
+		}
+		drain();
+	}
+
+	private static class Pipeline {
+
+		private final String id;
+
+		private final Supplier<Mono<Void>> supplier;
+
+		private Pipeline(String id, Supplier<Mono<Void>> supplier) {
+			this.id = id;
+			this.supplier = supplier;
+		}
+	}
+}
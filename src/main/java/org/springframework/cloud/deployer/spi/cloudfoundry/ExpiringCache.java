@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * A small, thread safe, size bounded cache whose entries expire after a fixed time to live. When full, the least
+ * recently used entry is evicted.
+ *
+ * <p>Entries that have been read since they were last written are considered <em>hot</em>, which lets a caller
+ * refresh those ahead of their expiry and leave the others to age out.</p>
+ *
+ * @author agent
+ */
+class ExpiringCache<K, V> {
+
+	private final long timeToLive;
+
+	private final LongSupplier clock;
+
+	private final Map<K, Entry<V>> entries;
+
+	/**
+	 * @param timeToLive how long (in ms) an entry stays valid after being written
+	 * @param maxSize the maximum number of entries to retain
+	 */
+	ExpiringCache(long timeToLive, int maxSize) {
+		this(timeToLive, maxSize, System::currentTimeMillis);
+	}
+
+	ExpiringCache(long timeToLive, int maxSize, LongSupplier clock) {
+		this.timeToLive = timeToLive;
+		this.clock = clock;
+		this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Return the value cached for the given key, or {@literal null} if absent or expired.
+	 */
+	public synchronized V get(K key) {
+		Entry<V> entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.isExpired(clock.getAsLong())) {
+			entries.remove(key);
+			return null;
+		}
+		entry.hot = true;
+		return entry.value;
+	}
+
+	public synchronized void put(K key, V value) {
+		entries.put(key, new Entry<>(value, clock.getAsLong() + timeToLive));
+	}
+
+	public synchronized void invalidate(K key) {
+		entries.remove(key);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Return the keys that have been read since they were last written, dropping expired entries along the way.
+	 */
+	public synchronized Set<K> hotKeys() {
+		long now = clock.getAsLong();
+		Set<K> result = new LinkedHashSet<>();
+		for (Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<K, Entry<V>> entry = it.next();
+			if (entry.getValue().isExpired(now)) {
+				it.remove();
+			}
+			else if (entry.getValue().hot) {
+				result.add(entry.getKey());
+			}
+		}
+		return result;
+	}
+
+	private static class Entry<V> {
+
+		private final V value;
+
+		private final long expiresAt;
+
+		private boolean hot;
+
+		private Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+
+		private boolean isExpired(long now) {
+			return now >= expiresAt;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Applies the HTTP settings of {@link CloudFoundryDeployerProperties}, on a best effort basis, to the connections used
+ * by the Cloud Foundry client.
+ *
+ * <p>The client talks to Cloud Foundry through the JDK's {@code HttpURLConnection}, and its builder offers no way to
+ * configure its connections or request factory, so their reuse and default timeouts can only be set through system
+ * properties. Those are process wide: they apply to every other {@code HttpURLConnection} of the application hosting
+ * the deployer too. All settings are therefore off by default, only those explicitly configured are applied, and a
+ * property already set on the command line always wins. Several of them are only read by the JDK when it first opens
+ * a connection, so they may have no effect at all if the application opened one before the client was created;
+ * setting them on the command line is the reliable way.</p>
+ *
+ * @author agent
+ */
+final class HttpClientTuning {
+
+	private static final Log logger = LogFactory.getLog(HttpClientTuning.class);
+
+	private HttpClientTuning() {
+	}
+
+	static void apply(CloudFoundryDeployerProperties properties) {
+		systemProperties(properties).forEach((name, value) -> {
+			String existing = System.getProperty(name);
+			if (existing == null) {
+				logger.info(String.format("Setting %s=%s for the whole JVM", name, value));
+				System.setProperty(name, value);
+			}
+			else if (!existing.equals(value)) {
+				logger.info(String.format("Keeping %s=%s set on the command line rather than %s", name, existing, value));
+			}
+		});
+	}
+
+	/**
+	 * Return the system properties matching the given settings, leaving out those left to their defaults.
+	 */
+	static Map<String, String> systemProperties(CloudFoundryDeployerProperties properties) {
+		Map<String, String> systemProperties = new LinkedHashMap<>();
+		if (properties.getHttpKeepAlive() != null) {
+			systemProperties.put("http.keepAlive", String.valueOf(properties.getHttpKeepAlive()));
+		}
+		if (properties.getHttpMaxConnections() > 0) {
+			systemProperties.put("http.maxConnections", String.valueOf(properties.getHttpMaxConnections()));
+		}
+		if (properties.getHttpConnectTimeout() > 0) {
+			systemProperties.put("sun.net.client.defaultConnectTimeout", String.valueOf(properties.getHttpConnectTimeout()));
+		}
+		if (properties.getHttpReadTimeout() > 0) {
+			systemProperties.put("sun.net.client.defaultReadTimeout", String.valueOf(properties.getHttpReadTimeout()));
+		}
+		return systemProperties;
+	}
+}
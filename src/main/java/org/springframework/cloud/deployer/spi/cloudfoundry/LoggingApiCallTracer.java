@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An {@link ApiCallTracer} that logs each span as a single line of {@code key=value} pairs.
+ *
+ * @author agent
+ */
+public class LoggingApiCallTracer implements ApiCallTracer {
+
+	private static final Log logger = LogFactory.getLog(LoggingApiCallTracer.class);
+
+	@Override
+	public void span(String operation, String outcome, long startTime, long durationNanos) {
+		if (logger.isInfoEnabled()) {
+			logger.info(String.format("span operation=%s outcome=%s start=%d durationMs=%.3f thread=%s",
+				operation, outcome, startTime, durationNanos / (double) TimeUnit.MILLISECONDS.toNanos(1),
+				Thread.currentThread().getName()));
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An {@link InputStream} over a file that maps it into memory one chunk at a time, so that reading even a very large
+ * file never copies more than the caller's own buffer onto the heap.
+ *
+ * <p>Chunks are only mapped when the reader gets to them, which lets a slow consumer (such as an HTTP upload) pace
+ * how much of the file is paged in.</p>
+ *
+ * @author agent
+ */
+class MappedFileInputStream extends InputStream {
+
+	private final FileChannel channel;
+
+	private final long size;
+
+	private final int chunkSize;
+
+	/**
+	 * Offset in the file of the first byte not mapped yet.
+	 */
+	private long offset;
+
+	private MappedByteBuffer chunk;
+
+	/**
+	 * @param path the file to read
+	 * @param chunkSize the number of bytes to map at a time
+	 */
+	MappedFileInputStream(Path path, int chunkSize) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.size = channel.size();
+		this.chunkSize = chunkSize;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!nextChunkIfNeeded()) {
+			return -1;
+		}
+		return chunk.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!nextChunkIfNeeded()) {
+			return -1;
+		}
+		int count = Math.min(len, chunk.remaining());
+		chunk.get(b, off, count);
+		return count;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		if (n <= 0) {
+			return 0;
+		}
+		long inChunk = chunk == null ? 0 : chunk.remaining();
+		if (n <= inChunk) {
+			chunk.position(chunk.position() + (int) n);
+			return n;
+		}
+		long skipped = Math.min(n, inChunk + (size - offset));
+		offset += skipped - inChunk;
+		chunk = null;
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		long remaining = (chunk == null ? 0 : chunk.remaining()) + (size - offset);
+		return (int) Math.min(Integer.MAX_VALUE, remaining);
+	}
+
+	@Override
+	public void close() throws IOException {
+		chunk = null;
+		channel.close();
+	}
+
+	private boolean nextChunkIfNeeded() throws IOException {
+		if (chunk != null && chunk.hasRemaining()) {
+			return true;
+		}
+		if (offset >= size) {
+			return false;
+		}
+		long length = Math.min(chunkSize, size - offset);
+		chunk = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+		offset += length;
+		return true;
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Counts the bytes of application bits read for upload, logging every tenth of the way when the total is known.
+ *
+ * @author agent
+ */
+class ProgressInputStream extends FilterInputStream {
+
+	private static final Log logger = LogFactory.getLog(ProgressInputStream.class);
+
+	private final String description;
+
+	private final long total;
+
+	private final LongConsumer onRead;
+
+	private long count;
+
+	private int reportedTenths;
+
+	/**
+	 * @param description what is being uploaded, for logging
+	 * @param total the number of bytes expected, or a negative value if unknown
+	 * @param onRead told about the number of bytes of each read
+	 */
+	ProgressInputStream(InputStream in, String description, long total, LongConsumer onRead) {
+		super(in);
+		this.description = description;
+		this.total = total;
+		this.onRead = onRead;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b != -1) {
+			advance(1);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = super.read(b, off, len);
+		if (n > 0) {
+			advance(n);
+		}
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		if (skipped > 0) {
+			advance(skipped);
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * Return the number of bytes read so far.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	private void advance(long n) {
+		count += n;
+		onRead.accept(n);
+		if (total > 0 && logger.isDebugEnabled()) {
+			int tenths = (int) Math.min(10L, count * 10L / total);
+			if (tenths > reportedTenths) {
+				reportedTenths = tenths;
+				logger.debug(String.format("Uploaded %d of %d bytes (%d%%) for %s", count, total, tenths * 10, description));
+			}
+		}
+	}
+}
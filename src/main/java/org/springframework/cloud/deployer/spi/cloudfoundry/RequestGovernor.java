@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+
+/**
+ * Paces all calls to the Cloud Controller made by one deployer, and backs off in a coordinated way when the
+ * controller pushes back.
+ *
+ * <p>Calls are admitted by a token bucket: up to {@code burst} calls go through at once, after which they are
+ * queued (delayed, not failed) to match the rate. When a call is answered with 429 or 503, every subsequent call is
+ * held back until the time given by {@code Retry-After} (or {@code X-RateLimit-Reset} once
+ * {@code X-RateLimit-Remaining} is down to 0, or one second if the controller gives no hint), and the throttled call
+ * is queued again. If the controller tells how many calls remain until its window resets, the rate is lowered to
+ * spread them over that window, and restored once the window is over.</p>
+ *
+ * @author agent
+ */
+class RequestGovernor {
+
+	private static final Log logger = LogFactory.getLog(RequestGovernor.class);
+
+	private static final long DEFAULT_PAUSE = 1000L;
+
+	/**
+	 * The configured rate, in calls per second, or 0 for no limit.
+	 */
+	private final double maxRate;
+
+	private final int burst;
+
+	private final int maxAttempts;
+
+	private final LongSupplier clock;
+
+	/**
+	 * The current rate, in calls per second, or 0 for no limit.
+	 */
+	private double rate;
+
+	/**
+	 * When the current rate, lowered on the controller's request, goes back to {@link #maxRate}.
+	 */
+	private long adaptedUntil;
+
+	private double tokens;
+
+	private long lastRefill;
+
+	private long pausedUntil;
+
+	private final AtomicInteger waiting = new AtomicInteger();
+
+	private final LongAdder throttled = new LongAdder();
+
+	private final LongAdder throttledTime = new LongAdder();
+
+	/**
+	 * @param maxRate the maximum rate (in calls per second), or 0 to only slow down when asked to
+	 * @param burst the number of calls that may go through at once
+	 * @param maxAttempts the maximum number of attempts at a call answered with 429 or 503
+	 */
+	RequestGovernor(double maxRate, int burst, int maxAttempts) {
+		this(maxRate, burst, maxAttempts, System::currentTimeMillis);
+	}
+
+	RequestGovernor(double maxRate, int burst, int maxAttempts, LongSupplier clock) {
+		this.maxRate = maxRate;
+		this.rate = maxRate;
+		this.burst = Math.max(1, burst);
+		this.maxAttempts = maxAttempts;
+		this.clock = clock;
+		this.tokens = this.burst;
+		this.lastRefill = clock.getAsLong();
+	}
+
+	/**
+	 * Admit the given call when its turn comes, queueing it again as long as it is throttled.
+	 */
+	public <T> Mono<T> govern(Mono<T> call) {
+		return Mono.defer(() -> {
+			long wait = reserve();
+			return wait <= 0 ? call : queue(wait).then(tick -> call);
+		})
+			.retryWhen(throttling());
+	}
+
+	/**
+	 * Admit the given call when its turn comes, queueing it again as long as it is throttled.
+	 */
+	public <T> Flux<T> govern(Flux<T> call) {
+		return Flux.defer(() -> {
+			long wait = reserve();
+			return wait <= 0 ? call : queue(wait).flatMap(tick -> call);
+		})
+			.retryWhen(throttling());
+	}
+
+	/**
+	 * Return the number of calls waiting for their turn.
+	 */
+	public int getWaiting() {
+		return waiting.get();
+	}
+
+	/**
+	 * Return the number of calls that were answered with 429 or 503.
+	 */
+	public long getThrottled() {
+		return throttled.sum();
+	}
+
+	/**
+	 * Return the total time (in ms) calls spent queued.
+	 */
+	public long getThrottledTime() {
+		return throttledTime.sum();
+	}
+
+	/**
+	 * Return the current rate, in calls per second, or 0 if unlimited.
+	 */
+	public synchronized double getRate() {
+		return rate;
+	}
+
+	/**
+	 * Take a token for one call.
+	 *
+	 * @return how long (in ms) the call must wait before going through
+	 */
+	synchronized long reserve() {
+		long now = clock.getAsLong();
+		if (adaptedUntil > 0 && now >= adaptedUntil) {
+			rate = maxRate;
+			adaptedUntil = 0;
+		}
+		long wait = Math.max(0L, pausedUntil - now);
+		if (rate > 0) {
+			tokens = Math.min(burst, tokens + (now - lastRefill) * rate / 1000d);
+			lastRefill = now;
+			tokens -= 1;
+			if (tokens < 0) {
+				wait = Math.max(wait, (long) Math.ceil(-tokens * 1000d / rate));
+			}
+		}
+		return wait;
+	}
+
+	/**
+	 * Hold back all calls as asked by the controller in a 429 or 503 answer.
+	 */
+	synchronized void onThrottled(HttpStatusCodeException e) {
+		long now = clock.getAsLong();
+		HttpHeaders headers = e.getResponseHeaders() == null ? new HttpHeaders() : e.getResponseHeaders();
+		long resetAt = resetAt(headers, now);
+		long pause = retryAfter(headers, now);
+		if (pause < 0) {
+			pause = "0".equals(headers.getFirst("X-RateLimit-Remaining")) && resetAt > now ? resetAt - now : DEFAULT_PAUSE;
+		}
+		pausedUntil = Math.max(pausedUntil, now + pause);
+		String remaining = headers.getFirst("X-RateLimit-Remaining");
+		if (remaining != null && resetAt > now) {
+			try {
+				double windowRate = Long.parseLong(remaining) * 1000d / (resetAt - now);
+				if (windowRate > 0 && (rate <= 0 || windowRate < rate)) {
+					rate = windowRate;
+					adaptedUntil = resetAt;
+				}
+			}
+			catch (NumberFormatException ignored) {
+				// leave the rate as is
+			}
+		}
+		logger.warn(String.format("Cloud Controller answered %s, holding back calls for %d ms", e.getStatusCode(), pause));
+	}
+
+	private Mono<Long> queue(long wait) {
+		waiting.incrementAndGet();
+		throttledTime.add(wait);
+		return Mono.delay(Duration.ofMillis(wait))
+			.doOnSuccess(tick -> waiting.decrementAndGet())
+			.doOnError(t -> waiting.decrementAndGet());
+	}
+
+	private Function<Flux<Throwable>, Publisher<?>> throttling() {
+		return errors -> {
+			AtomicInteger attempts = new AtomicInteger(1);
+			return errors.flatMap(e -> {
+				if (!isThrottled(e)) {
+					return Mono.<Long>error(e);
+				}
+				throttled.increment();
+				onThrottled((HttpStatusCodeException) e);
+				return attempts.getAndIncrement() >= maxAttempts ? Mono.<Long>error(e) : Mono.just(0L);
+			});
+		};
+	}
+
+	static boolean isThrottled(Throwable e) {
+		if (e instanceof HttpStatusCodeException) {
+			HttpStatus status = ((HttpStatusCodeException) e).getStatusCode();
+			return status == HttpStatus.TOO_MANY_REQUESTS || status == HttpStatus.SERVICE_UNAVAILABLE;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the delay (in ms) asked for by the {@code Retry-After} header, or -1 if none
+	 */
+	private static long retryAfter(HttpHeaders headers, long now) {
+		String value = headers.getFirst("Retry-After");
+		if (value == null) {
+			return -1L;
+		}
+		try {
+			return Math.max(0L, Long.parseLong(value.trim()) * 1000L);
+		}
+		catch (NumberFormatException e) {
+			try {
+				return Math.max(0L, ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() - now);
+			}
+			catch (DateTimeParseException ignored) {
+				return -1L;
+			}
+		}
+	}
+
+	/**
+	 * @return when (in ms since the epoch) the controller's rate limit window resets, or -1 if unknown
+	 */
+	private static long resetAt(HttpHeaders headers, long now) {
+		String value = headers.getFirst("X-RateLimit-Reset");
+		if (value == null) {
+			return -1L;
+		}
+		try {
+			long reset = Long.parseLong(value.trim());
+			// an epoch time in seconds, or (from some proxies) a number of seconds from now
+			return reset > now / 1000L / 2 ? reset * 1000L : now + reset * 1000L;
+		}
+		catch (NumberFormatException e) {
+			return -1L;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Computes content digests of application artifacts, using SHA-1 like Cloud Foundry does to fingerprint
+ * application bits.
+ *
+ * @author agent
+ */
+final class ResourceDigests {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private ResourceDigests() {
+	}
+
+	/**
+	 * Stream the whole resource through a digest and return it as a hexadecimal string.
+	 */
+	static String digest(Resource resource) throws IOException {
+		if (resource instanceof ArtifactCache.CachedArtifact) {
+			return ((ArtifactCache.CachedArtifact) resource).getDigest();
+		}
+		try (DigestInputStream in = digestingStream(resource.getInputStream())) {
+			byte[] buffer = new byte[8192];
+			while (in.read(buffer) != -1) {
+				// only reading for the side effect of digesting
+			}
+			return toHex(in.getMessageDigest());
+		}
+	}
+
+	/**
+	 * Return the digest of the given text, as a hexadecimal string.
+	 */
+	static String digest(String text) {
+		MessageDigest digest = newDigest();
+		digest.update(text.getBytes(StandardCharsets.UTF_8));
+		return toHex(digest);
+	}
+
+	/**
+	 * Wrap the given stream so that the digest of everything read through it can be obtained with
+	 * {@link #toHex(MessageDigest)} once fully consumed.
+	 */
+	static DigestInputStream digestingStream(InputStream in) {
+		return new DigestInputStream(in, newDigest());
+	}
+
+	/**
+	 * Complete the given digest and return it as a hexadecimal string.
+	 */
+	static String toHex(MessageDigest digest) {
+		byte[] bytes = digest.digest();
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+			chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 is required to be supported by every JVM", e);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Retry strategies for calls to the Cloud Foundry API, to be used with {@code retryWhen}.
+ *
+ * @author agent
+ */
+final class Retries {
+
+	private Retries() {
+	}
+
+	/**
+	 * Retry transient failures (see {@link #isTransient(Throwable)}) with exponential back off and full jitter: the
+	 * n-th retry waits a random time between 0 and {@code backOff * 2^(n-1)} ms.
+	 *
+	 * @param maxAttempts the maximum number of attempts, including the first one
+	 * @param backOff the base delay (in ms)
+	 * @param onRetry called before each retry
+	 */
+	static Function<Flux<Throwable>, Publisher<?>> withJitter(int maxAttempts, long backOff, Runnable onRetry) {
+		return withJitter(maxAttempts, backOff, Retries::isTransient, onRetry);
+	}
+
+	/**
+	 * Retry the failures matching the given predicate with exponential back off and full jitter.
+	 *
+	 * @param maxAttempts the maximum number of attempts, including the first one
+	 * @param backOff the base delay (in ms)
+	 * @param retryable tells which failures to retry
+	 * @param onRetry called before each retry
+	 * @see #withJitter(int, long, Runnable)
+	 */
+	static Function<Flux<Throwable>, Publisher<?>> withJitter(int maxAttempts, long backOff,
+			Predicate<Throwable> retryable, Runnable onRetry) {
+		return errors -> {
+			AtomicInteger attempts = new AtomicInteger(1);
+			return errors.flatMap(e -> {
+				int attempt = attempts.getAndIncrement();
+				if (attempt >= maxAttempts || !retryable.test(e)) {
+					return Mono.<Long>error(e);
+				}
+				onRetry.run();
+				return Mono.delay(Duration.ofMillis(jitter(backOff, attempt)));
+			});
+		};
+	}
+
+	/**
+	 * Tell whether a failed call is worth retrying as is: the controller or a broker behind it answered with a
+	 * server error, or asked to slow down, or the connection to the controller failed.
+	 */
+	static boolean isTransient(Throwable e) {
+		if (e instanceof HttpStatusCodeException) {
+			HttpStatus status = ((HttpStatusCodeException) e).getStatusCode();
+			return status.is5xxServerError() || status == HttpStatus.TOO_MANY_REQUESTS;
+		}
+		return e instanceof ResourceAccessException;
+	}
+
+	static long jitter(long backOff, int attempt) {
+		long ceiling = backOff;
+		for (int i = 1; i < attempt && ceiling < Long.MAX_VALUE / 2; i++) {
+			ceiling *= 2;
+		}
+		return ceiling <= 0 ? 0L : ThreadLocalRandom.current().nextLong(ceiling + 1);
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.cloudfoundry.operations.CloudFoundryOperations;
+import org.cloudfoundry.operations.services.BindServiceInstanceRequest;
+import org.cloudfoundry.operations.services.ServiceInstance;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+/**
+ * Binds service instances to an application.
+ *
+ * <p>Bindings for one application run in parallel up to a fixed limit. Across all applications, bindings to
+ * instances of the same service (and so, to the same broker) are further limited, so that a burst of deployments
+ * does not overwhelm a broker. Bindings that fail with a transient error are retried with jittered exponential back
+ * off (leaving throttled ones to the request governor, if any), and bindings that already exist are skipped. As a
+ * binding is not idempotent, one that fails with a server error may have gone through anyway: if a retry then finds
+ * the application already bound, the binding is considered done.</p>
+ *
+ * @author agent
+ */
+class ServiceBinder {
+
+	private static final Log logger = LogFactory.getLog(ServiceBinder.class);
+
+	private final CloudFoundryOperations operations;
+
+	private final ApiCallDecorator calls;
+
+	private final int concurrency;
+
+	private final int concurrencyPerService;
+
+	private final int maxAttempts;
+
+	private final long backOff;
+
+	/**
+	 * Limits concurrent bindings, by service.
+	 */
+	private final Map<String, ConcurrencyLimiter> serviceLimiters = new ConcurrentHashMap<>();
+
+	/**
+	 * @param concurrency the maximum number of concurrent bindings for one application
+	 * @param concurrencyPerService the maximum number of concurrent bindings to instances of the same service
+	 * @param maxAttempts the maximum number of attempts per binding
+	 * @param backOff the base delay (in ms) before retrying a binding
+	 */
+	ServiceBinder(CloudFoundryOperations operations, ApiCallDecorator calls, int concurrency,
+			int concurrencyPerService, int maxAttempts, long backOff) {
+		this.operations = operations;
+		this.calls = calls;
+		this.concurrency = concurrency;
+		this.concurrencyPerService = concurrencyPerService;
+		this.maxAttempts = maxAttempts;
+		this.backOff = backOff;
+	}
+
+	/**
+	 * Bind the given service instances to the application, skipping those already bound to it.
+	 */
+	public Mono<Void> bind(String applicationName, Collection<String> serviceInstanceNames) {
+		if (serviceInstanceNames.isEmpty()) {
+			return Mono.empty();
+		}
+		return bind(applicationName, serviceInstanceNames, serviceInstances(serviceInstanceNames));
+	}
+
+	/**
+	 * Bind the given service instances to the application, skipping those already bound to it according to a
+	 * lookup made beforehand, typically shared by several applications.
+	 *
+	 * @param serviceInstances service instances by name, as returned by {@link #serviceInstances(Collection)}
+	 */
+	public Mono<Void> bind(String applicationName, Collection<String> serviceInstanceNames,
+			Mono<Map<String, ServiceInstance>> serviceInstances) {
+		if (serviceInstanceNames.isEmpty()) {
+			return Mono.empty();
+		}
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(concurrency);
+		return serviceInstances
+			.then(instances -> Flux.fromIterable(serviceInstanceNames)
+				.filter(name -> !isBound(instances.get(name), applicationName))
+				.flatMap(name -> limiter.limit(() -> bind(applicationName, name, instances.get(name))))
+				.after());
+	}
+
+	private Mono<Void> bind(String applicationName, String serviceInstanceName, ServiceInstance instance) {
+		String service = instance == null || instance.getService() == null ? serviceInstanceName : instance.getService();
+		return Mono.defer(() -> {
+			AtomicBoolean retried = new AtomicBoolean();
+			return serviceLimiters.computeIfAbsent(service, s -> new ConcurrencyLimiter(concurrencyPerService))
+				.limit(() -> calls.decorate("bind", operations.services()
+					.bind(BindServiceInstanceRequest.builder()
+						.applicationName(applicationName)
+						.serviceInstanceName(serviceInstanceName)
+						.build())))
+				.retryWhen(Retries.withJitter(maxAttempts, backOff, calls::isRetryable, () -> {
+					retried.set(true);
+					calls.getMetrics().increment("api.bind.retries");
+				}))
+				.otherwise(e -> retried.get() && isAlreadyBound(e) ? Mono.<Void>empty() : Mono.<Void>error(e));
+		})
+			.doOnSuccess(v -> logger.debug(String.format("Bound service %s to app %s", serviceInstanceName, applicationName)))
+			.doOnError(e -> logger.error(String.format("Failed to bind service %s to app %s", serviceInstanceName, applicationName), e));
+	}
+
+	/**
+	 * Look up the given service instances in the target space, by name. If that fails, bindings are attempted
+	 * without knowing which already exist.
+	 */
+	public Mono<Map<String, ServiceInstance>> serviceInstances(Collection<String> names) {
+		return Mono.defer(() -> calls.decorate("listServiceInstances", operations.services()
+				.listInstances())
+			.filter(instance -> names.contains(instance.getName()))
+			.<Map<String, ServiceInstance>>reduce(new HashMap<>(), (map, instance) -> {
+				map.put(instance.getName(), instance);
+				return map;
+			}))
+			.otherwise(e -> {
+				logger.warn(String.format("Could not list service instances, binding all of %s: %s", names, e.getMessage()));
+				return Mono.<Map<String, ServiceInstance>>just(new HashMap<>());
+			});
+	}
+
+	/**
+	 * Tell whether a binding failed because the application is already bound to the service instance, which Cloud
+	 * Foundry answers with a 400 and error code 90003 ({@code CF-ServiceBindingAppServiceTaken}).
+	 */
+	static boolean isAlreadyBound(Throwable e) {
+		if (!(e instanceof HttpClientErrorException)
+			|| ((HttpClientErrorException) e).getStatusCode() != HttpStatus.BAD_REQUEST) {
+			return false;
+		}
+		HttpClientErrorException error = (HttpClientErrorException) e;
+		String details = error.getStatusText() + " " + error.getResponseBodyAsString();
+		return details.contains("90003") || details.contains("ServiceBindingAppServiceTaken")
+			|| details.contains("already bound");
+	}
+
+	private static boolean isBound(ServiceInstance instance, String applicationName) {
+		return instance != null && instance.getApplications() != null
+			&& instance.getApplications().contains(applicationName);
+	}
+}
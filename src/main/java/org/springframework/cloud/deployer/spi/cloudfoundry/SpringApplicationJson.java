@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Serializes the properties of deployed apps into the {@code SPRING_APPLICATION_JSON} environment variable.
+ *
+ * <p>A single writer is shared by all deployments: it is thread safe, introspects maps once, and recycles its
+ * buffers for each thread. Keys are written in order, so that the same properties always give the same value.</p>
+ *
+ * @author agent
+ */
+final class SpringApplicationJson {
+
+	static final String VARIABLE_NAME = "SPRING_APPLICATION_JSON";
+
+	private static final ObjectWriter WRITER = new ObjectMapper()
+		.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+		.writerFor(Map.class);
+
+	private SpringApplicationJson() {
+	}
+
+	/**
+	 * Return the value of {@code SPRING_APPLICATION_JSON} for the given properties, or {@literal null} if there are
+	 * none to set.
+	 */
+	static String serialize(Map<String, String> properties) {
+		if (properties == null || properties.isEmpty()) {
+			return null;
+		}
+		try {
+			return WRITER.writeValueAsString(properties);
+		}
+		catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Could not serialize properties " + properties, e);
+		}
+	}
+}
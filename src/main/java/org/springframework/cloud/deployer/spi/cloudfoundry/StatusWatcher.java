@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.EmitterProcessor;
+import reactor.core.publisher.Flux;
+
+/**
+ * Multiplexes watchers of many ids over a single polling loop.
+ *
+ * <p>While at least one id is watched, the statuses of all watched ids are looked up in bulk at a fixed interval.
+ * Each watcher is sent the first status seen and then only statuses whose state differs from the last one it was
+ * sent. Watches complete once a terminal state is reached, and polling stops when nothing is watched anymore.</p>
+ *
+ * @param <S> the type of status
+ * @author agent
+ */
+class StatusWatcher<S> {
+
+	private static final Log logger = LogFactory.getLog(StatusWatcher.class);
+
+	private final Function<Collection<String>, Map<String, S>> lookup;
+
+	private final Function<S, ?> state;
+
+	private final Predicate<S> terminal;
+
+	private final long interval;
+
+	private final ScheduledExecutorService executor;
+
+	/**
+	 * Active watches, by id.
+	 */
+	private final Map<String, List<Watch<S>>> watches = new LinkedHashMap<>();
+
+	private ScheduledFuture<?> polling;
+
+	/**
+	 * Serializes polls, which normally all happen on the polling thread.
+	 */
+	private final Object pollLock = new Object();
+
+	/**
+	 * @param lookup looks up the statuses of several ids at once
+	 * @param state extracts the part of a status whose changes are worth reporting
+	 * @param terminal tells whether a status is final, completing the watch
+	 * @param interval the delay (in ms) between two lookups
+	 * @param threadName the name of the polling thread
+	 */
+	StatusWatcher(Function<Collection<String>, Map<String, S>> lookup, Function<S, ?> state, Predicate<S> terminal,
+			long interval, String threadName) {
+		this.lookup = lookup;
+		this.state = state;
+		this.terminal = terminal;
+		this.interval = interval;
+		this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, threadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Return a {@link Flux} of the changes in status of the given id. Each subscription is a new watch.
+	 */
+	public Flux<S> watch(String id) {
+		return Flux.defer(() -> {
+			Watch<S> watch = new Watch<>();
+			add(id, watch);
+			return watch.processor
+				.doOnCancel(() -> remove(id, watch));
+		});
+	}
+
+	/**
+	 * Return the number of active watches.
+	 */
+	public synchronized int getWatchCount() {
+		int count = 0;
+		for (List<Watch<S>> list : watches.values()) {
+			count += list.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Stop polling and complete all watches.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+		List<Watch<S>> all = new ArrayList<>();
+		synchronized (this) {
+			watches.values().forEach(all::addAll);
+			watches.clear();
+		}
+		all.forEach(watch -> watch.processor.onComplete());
+	}
+
+	/**
+	 * Look up the statuses of all watched ids and notify the watchers of those that changed.
+	 */
+	void poll() {
+		synchronized (pollLock) {
+			doPoll();
+		}
+	}
+
+	private void doPoll() {
+		Map<String, List<Watch<S>>> current = new LinkedHashMap<>();
+		synchronized (this) {
+			watches.forEach((id, list) -> current.put(id, new ArrayList<>(list)));
+		}
+		if (current.isEmpty()) {
+			return;
+		}
+		Map<String, S> statuses;
+		try {
+			statuses = lookup.apply(current.keySet());
+		}
+		catch (RuntimeException e) {
+			logger.warn(String.format("Failed to look up the status of %d watched ids", current.size()), e);
+			return;
+		}
+		current.forEach((id, list) -> {
+			S status = statuses.get(id);
+			if (status == null) {
+				return;
+			}
+			Object latest = state.apply(status);
+			boolean done = terminal.test(status);
+			for (Watch<S> watch : list) {
+				if (!watch.notified || !Objects.equals(watch.state, latest)) {
+					watch.notified = true;
+					watch.state = latest;
+					watch.processor.onNext(status);
+				}
+				if (done) {
+					remove(id, watch);
+					watch.processor.onComplete();
+				}
+			}
+		});
+	}
+
+	private synchronized void add(String id, Watch<S> watch) {
+		watches.computeIfAbsent(id, i -> new ArrayList<>()).add(watch);
+		if (polling == null) {
+			polling = executor.scheduleWithFixedDelay(this::poll, 0L, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private synchronized void remove(String id, Watch<S> watch) {
+		List<Watch<S>> list = watches.get(id);
+		if (list != null && list.remove(watch) && list.isEmpty()) {
+			watches.remove(id);
+		}
+		if (watches.isEmpty() && polling != null) {
+			polling.cancel(false);
+			polling = null;
+		}
+	}
+
+	private static class Watch<S> {
+
+		private final EmitterProcessor<S> processor = EmitterProcessor.create();
+
+		/**
+		 * The state last sent to the watcher. Only accessed while polling.
+		 */
+		private Object state;
+
+		private boolean notified;
+
+		private Watch() {
+			processor.connect();
+		}
+	}
+}
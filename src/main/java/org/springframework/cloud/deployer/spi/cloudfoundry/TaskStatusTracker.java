@@ -0,0 +1,268 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.cloudfoundry.client.CloudFoundryClient;
+import org.cloudfoundry.client.v3.Link;
+import org.cloudfoundry.client.v3.tasks.ListTasksRequest;
+import org.cloudfoundry.client.v3.tasks.Task;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.deployer.spi.task.TaskStatus;
+
+/**
+ * Keeps the status of launched tasks up to date in memory, so that reading it costs no request.
+ *
+ * <p>Task applications are tracked by name once a task is launched on them. At a fixed interval, the tasks of all
+ * tracked applications whose latest task is not finished are listed in bulk (filtered by application and newest
+ * first, instead of two requests per task) and the status of the latest task of each application is recorded.
+ * Listing stops as soon as the latest task of each application is known, so that its cost does not grow with the
+ * history of past tasks. Applications stop being refreshed once their task is finished, until another one is
+ * launched. As another launcher may do so, the finished status is only served for one interval, after which it is
+ * left for the caller to look up again.</p>
+ *
+ * @author agent
+ */
+class TaskStatusTracker {
+
+	private static final Log logger = LogFactory.getLog(TaskStatusTracker.class);
+
+	/**
+	 * The maximum number of application ids to filter on in one request, to keep URLs reasonably short.
+	 */
+	private static final int APPLICATION_IDS_PER_REQUEST = 50;
+
+	private final CloudFoundryClient client;
+
+	private final ApiCallDecorator calls;
+
+	private final Function<Task, TaskStatus> mapper;
+
+	private final Predicate<TaskStatus> finished;
+
+	private final long interval;
+
+	private final Duration timeout;
+
+	private final ScheduledExecutorService executor;
+
+	/**
+	 * Ids of the tracked applications, by name.
+	 */
+	private final Map<String, String> applicationIds = new ConcurrentHashMap<>();
+
+	/**
+	 * Names of the tracked applications whose latest task may not be finished.
+	 */
+	private final Set<String> active = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Status of the latest task of each tracked application, by application name.
+	 */
+	private final Map<String, TaskStatus> statuses = new ConcurrentHashMap<>();
+
+	/**
+	 * When the latest task of each tracked application was found finished, by application name.
+	 */
+	private final Map<String, Long> finishedAt = new ConcurrentHashMap<>();
+
+	/**
+	 * @param mapper converts a Cloud Foundry task into a {@link TaskStatus}
+	 * @param finished tells whether a status is final
+	 * @param interval the delay (in ms) between two refreshes
+	 * @param timeout how long (in ms) a refresh may take
+	 */
+	TaskStatusTracker(CloudFoundryClient client, ApiCallDecorator calls, Function<Task, TaskStatus> mapper,
+			Predicate<TaskStatus> finished, long interval, long timeout) {
+		this.client = client;
+		this.calls = calls;
+		this.mapper = mapper;
+		this.finished = finished;
+		this.interval = interval;
+		this.timeout = Duration.ofMillis(timeout);
+		this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "cloudfoundry-task-status-tracker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.executor.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Start tracking the application a task was just launched on, forgetting the status of its previous task.
+	 */
+	public void track(String name, String applicationId) {
+		applicationIds.put(name, applicationId);
+		statuses.remove(name);
+		finishedAt.remove(name);
+		active.add(name);
+	}
+
+	/**
+	 * Record a status obtained by other means, tracking the application if its task is still going.
+	 */
+	public void update(String name, String applicationId, TaskStatus status) {
+		applicationIds.put(name, applicationId);
+		statuses.put(name, status);
+		if (finished.test(status)) {
+			finishedAt.put(name, System.currentTimeMillis());
+			active.remove(name);
+		}
+		else {
+			finishedAt.remove(name);
+			active.add(name);
+		}
+	}
+
+	public void untrack(String name) {
+		active.remove(name);
+		statuses.remove(name);
+		finishedAt.remove(name);
+		applicationIds.remove(name);
+	}
+
+	/**
+	 * Return the last known status of the latest task launched on the given application, or {@literal null} if
+	 * unknown or if it was found finished more than an interval ago.
+	 */
+	public TaskStatus get(String name) {
+		Long since = finishedAt.get(name);
+		if (since != null && System.currentTimeMillis() - since >= interval) {
+			return null;
+		}
+		return statuses.get(name);
+	}
+
+	/**
+	 * Return the number of applications whose task is being refreshed.
+	 */
+	public int getActiveCount() {
+		return active.size();
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * List the tasks of all active applications and record the status of the latest one of each.
+	 */
+	void refresh() {
+		Map<String, String> names = new HashMap<>();
+		for (String name : active) {
+			String applicationId = applicationIds.get(name);
+			if (applicationId != null) {
+				names.put(applicationId, name);
+			}
+		}
+		if (names.isEmpty()) {
+			return;
+		}
+		try {
+			Map<String, Task> latest = new ConcurrentHashMap<>();
+			Flux.fromIterable(partition(names.keySet()))
+				.flatMap(applicationIds -> requestLatestTasks(applicationIds, new HashSet<>(applicationIds), 1))
+				.doOnNext(task -> latest.merge(applicationId(task), task, TaskStatusTracker::later))
+				.after()
+				.get(timeout);
+			latest.forEach((applicationId, task) -> {
+				String name = names.get(applicationId);
+				if (name != null && active.contains(name)) {
+					update(name, applicationId, mapper.apply(task));
+				}
+			});
+		}
+		catch (RuntimeException e) {
+			logger.warn(String.format("Failed to refresh the status of %d tasks", names.size()), e);
+		}
+	}
+
+	/**
+	 * Request the tasks of the given applications newest first, from the given page on, until the latest task of
+	 * each application has been seen.
+	 *
+	 * @param remaining the applications whose latest task has not been seen yet, updated as pages come in
+	 */
+	private Flux<Task> requestLatestTasks(List<String> applicationIds, Set<String> remaining, int page) {
+		return calls.decorate("listTasks", client.tasks()
+			.list(ListTasksRequest.builder()
+				.applicationIds(applicationIds)
+				.orderBy("-created_at")
+				.page(page)
+				.build()))
+			.flatMap(response -> {
+				List<Task> tasks = new ArrayList<>();
+				for (Task task : response.getResources()) {
+					String applicationId = applicationId(task);
+					if (applicationId != null && remaining.remove(applicationId)) {
+						tasks.add(task);
+					}
+				}
+				return remaining.isEmpty() || response.getPagination() == null || response.getPagination().getNext() == null
+					? Flux.fromIterable(tasks)
+					: Flux.concat(Flux.fromIterable(tasks), requestLatestTasks(applicationIds, remaining, page + 1));
+			});
+	}
+
+	private static List<List<String>> partition(Collection<String> applicationIds) {
+		List<List<String>> partitions = new ArrayList<>();
+		List<String> current = null;
+		for (String applicationId : applicationIds) {
+			if (current == null || current.size() == APPLICATION_IDS_PER_REQUEST) {
+				current = new ArrayList<>();
+				partitions.add(current);
+			}
+			current.add(applicationId);
+		}
+		return partitions;
+	}
+
+	/**
+	 * Return the id of the application a task belongs to, from its {@code app} link.
+	 */
+	private static String applicationId(Task task) {
+		Link link = task.getLinks() == null ? null : task.getLinks().get("app");
+		if (link == null || link.getHref() == null) {
+			return null;
+		}
+		return link.getHref().substring(link.getHref().lastIndexOf('/') + 1);
+	}
+
+	private static Task later(Task a, Task b) {
+		if (a.getCreatedAt() == null) {
+			return b;
+		}
+		return b.getCreatedAt() != null && b.getCreatedAt().compareTo(a.getCreatedAt()) > 0 ? b : a;
+	}
+}
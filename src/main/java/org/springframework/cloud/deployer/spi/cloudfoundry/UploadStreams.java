@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Opens the streams application bits are uploaded from.
+ *
+ * <p>The streams only read the artifact as they are read from, but whether the bits then go out as they are read is
+ * up to the Cloud Foundry client, whose request factory may still buffer the whole request body.</p>
+ *
+ * @author agent
+ */
+final class UploadStreams {
+
+	private UploadStreams() {
+	}
+
+	/**
+	 * Open the given resource for upload. Resources backed by a file are memory mapped chunk by chunk, others are read
+	 * through their own stream.
+	 *
+	 * @param resource the application artifact
+	 * @param chunkSize the number of bytes of a file to map at a time
+	 */
+	static InputStream open(Resource resource, int chunkSize) throws IOException {
+		File file = fileOrNull(resource);
+		if (file != null) {
+			return new MappedFileInputStream(file.toPath(), chunkSize);
+		}
+		return resource.getInputStream();
+	}
+
+	/**
+	 * Open the given resource for upload like {@link #open(Resource, int)}, keeping track of the progress.
+	 *
+	 * @param description what is being uploaded, for logging
+	 * @param onRead told about the number of bytes of each read
+	 */
+	static ProgressInputStream open(Resource resource, int chunkSize, String description, LongConsumer onRead)
+			throws IOException {
+		return new ProgressInputStream(open(resource, chunkSize), description, contentLengthOrUnknown(resource), onRead);
+	}
+
+	/**
+	 * Only resources backed by a file can tell their length cheaply; others may have to be read through to do so.
+	 */
+	private static long contentLengthOrUnknown(Resource resource) {
+		File file = fileOrNull(resource);
+		return file != null ? file.length() : -1L;
+	}
+
+	private static File fileOrNull(Resource resource) {
+		try {
+			File file = resource.getFile();
+			return file != null && file.isFile() ? file : null;
+		}
+		catch (IOException | UnsupportedOperationException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps track of task applications that are staged and ready to run tasks, by application name.
+ *
+ * <p>The pool holds at most a fixed number of applications. Adding one more evicts the least recently used, and
+ * applications not used for longer than the idle timeout can be evicted too. Evicted application ids are handed
+ * back to the caller (by application name), which is responsible for deleting them.</p>
+ *
+ * @author agent
+ */
+class WarmApplicationPool {
+
+	private final int maxSize;
+
+	private final long idleTimeout;
+
+	private final LongSupplier clock;
+
+	/**
+	 * Application id and last use, by application name, least recently used first.
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * @param maxSize the maximum number of applications to keep
+	 * @param idleTimeout how long (in ms) an application may stay unused before being evicted, 0 meaning forever
+	 */
+	WarmApplicationPool(int maxSize, long idleTimeout) {
+		this(maxSize, idleTimeout, System::currentTimeMillis);
+	}
+
+	WarmApplicationPool(int maxSize, long idleTimeout, LongSupplier clock) {
+		this.maxSize = maxSize;
+		this.idleTimeout = idleTimeout;
+		this.clock = clock;
+	}
+
+	/**
+	 * Return the id of the ready application with the given name, marking it as used, or {@literal null} if the pool
+	 * does not hold it.
+	 */
+	public synchronized String acquire(String name) {
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			return null;
+		}
+		entry.lastUsed = clock.getAsLong();
+		return entry.applicationId;
+	}
+
+	/**
+	 * Add a ready application to the pool.
+	 *
+	 * @return the ids of the applications evicted to make room by name, never containing the one just added
+	 */
+	public synchronized Map<String, String> add(String name, String applicationId) {
+		entries.put(name, new Entry(applicationId, clock.getAsLong()));
+		Map<String, String> evicted = new LinkedHashMap<>();
+		for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); entries.size() > maxSize && it.hasNext(); ) {
+			Map.Entry<String, Entry> entry = it.next();
+			if (!entry.getKey().equals(name)) {
+				evicted.put(entry.getKey(), entry.getValue().applicationId);
+				it.remove();
+			}
+		}
+		return evicted;
+	}
+
+	public synchronized void remove(String name) {
+		entries.remove(name);
+	}
+
+	/**
+	 * Remove applications that have not been used for longer than the idle timeout.
+	 *
+	 * @return the ids of the evicted applications, by name
+	 */
+	public synchronized Map<String, String> evictIdle() {
+		Map<String, String> evicted = new LinkedHashMap<>();
+		if (idleTimeout <= 0) {
+			return evicted;
+		}
+		long now = clock.getAsLong();
+		for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<String, Entry> entry = it.next();
+			if (now - entry.getValue().lastUsed >= idleTimeout) {
+				evicted.put(entry.getKey(), entry.getValue().applicationId);
+				it.remove();
+			}
+		}
+		return evicted;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	private static class Entry {
+
+		private final String applicationId;
+
+		private long lastUsed;
+
+		private Entry(String applicationId, long lastUsed) {
+			this.applicationId = applicationId;
+			this.lastUsed = lastUsed;
+		}
+	}
+}
@@ -133,7 +133,10 @@ class CloudFoundryTaskLauncherSpec extends Specification {
 
         0 * tasks._
 
+        2 * resource.getFile() >> null
         1 * resource.getInputStream() >> { IOUtils.toInputStream("my app's bits") }
+        1 * resource.contentLength() >> 13L
+        1 * resource.lastModified() >> 0L
         0 * resource._
     }
 
@@ -210,6 +213,7 @@ class CloudFoundryTaskLauncherSpec extends Specification {
 
         0 * tasks._
 
+        1 * resource.getFile() >> null
         1 * resource.getInputStream() >> { throw new IOException("Can't find your resource!") }
         0 * resource._
     }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for {@link AdaptivePoller}.
+ *
+ * @author agent
+ */
+public class AdaptivePollerTests {
+
+	private final AdaptivePoller poller = new AdaptivePoller(100L, 10_000L, 60_000L, 50);
+
+	@Test
+	public void backsOffExponentiallyWhenNothingIsKnown() {
+		assertEquals(-1L, poller.expected(1024L));
+		assertEquals(100L, poller.delay(0, 0, -1L));
+		assertEquals(400L, poller.delay(2, 300, -1L));
+		assertEquals(10_000L, poller.delay(20, 30_000, -1L));
+	}
+
+	@Test
+	public void pollsWhenProcessingIsExpectedToComplete() {
+		poller.record(1024L, 3000L);
+		long expected = poller.expected(1024L);
+		assertEquals(3000L, expected);
+		assertEquals(1500L, poller.delay(0, 0, expected));
+		assertEquals(1400L, poller.delay(1, 1600, expected));
+		assertEquals(300L, poller.delay(2, 3000, expected));
+		assertEquals(6400L, poller.delay(6, 7000, expected));
+	}
+
+	@Test
+	public void learnsThatProcessingGotFaster() {
+		AdaptivePoller poller = new AdaptivePoller(10L, 10_000L, 60_000L, 50);
+		poller.record(1024L, 400L);
+		AtomicInteger polls = new AtomicInteger();
+
+		// done by the time of the first poll after the immediate one, halfway through the expected 400 ms
+		String result = poller.poll(1024L, Mono.defer(() -> polls.incrementAndGet() < 2
+			? Mono.<String>empty() : Mono.just("done"))).get();
+
+		assertEquals("done", result);
+		assertTrue(poller.expected(1024L) < 400L);
+	}
+
+	@Test
+	public void learnsPerSizeOrderOfMagnitude() {
+		poller.record(1000L, 1000L);
+		poller.record(1000L, 2000L);
+		assertEquals(1300L, poller.expected(1000L));
+		assertEquals(1300L, poller.expected(600L));
+		assertEquals(-1L, poller.expected(100_000_000L));
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+/**
+ * Unit tests for {@link ApiCallDecorator}.
+ *
+ * @author agent
+ */
+public class ApiCallDecoratorTests {
+
+	@Test
+	public void retriesIdempotentCallsOnTransientErrors() {
+		ApiCallDecorator retrying = new ApiCallDecorator(new CloudFoundryApiMetrics(), null,
+			new ApiRetryPolicy(3, Collections.emptyMap(), 1L), null);
+		AtomicInteger attempts = new AtomicInteger();
+
+		String status = retrying.decorate("status", Mono.defer(() -> attempts.incrementAndGet() < 3
+			? Mono.<String>error(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)) : Mono.just("running"))).get();
+
+		assertEquals("running", status);
+		assertEquals(2L, retrying.getMetrics().getCount("status", "server_error"));
+		assertThat(retrying.getMetrics().snapshot(), hasEntry("cloudfoundry.api.status.retries", (Number) 2L));
+	}
+
+	@Test
+	public void leavesThrottledCallsToTheGovernor() {
+		ApiCallDecorator retrying = new ApiCallDecorator(new CloudFoundryApiMetrics(),
+			new RequestGovernor(0.0, 1, 2), new ApiRetryPolicy(3, Collections.emptyMap(), 1L), null);
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("Retry-After", "0");
+		AtomicInteger attempts = new AtomicInteger();
+
+		failing(retrying.decorate("status", Mono.defer(() -> {
+			attempts.incrementAndGet();
+			return Mono.error(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers,
+				new byte[0], StandardCharsets.UTF_8));
+		})));
+
+		assertEquals(2, attempts.get());
+		assertThat(retrying.getMetrics().snapshot(), not(hasKey("cloudfoundry.api.status.retries")));
+	}
+
+	@Test
+	public void retriesServerErrorsOfGovernedCalls() {
+		ApiCallDecorator retrying = new ApiCallDecorator(new CloudFoundryApiMetrics(),
+			new RequestGovernor(0.0, 1, 2), new ApiRetryPolicy(3, Collections.emptyMap(), 1L), null);
+		AtomicInteger attempts = new AtomicInteger();
+
+		failing(retrying.decorate("status", Mono.defer(() -> {
+			attempts.incrementAndGet();
+			return Mono.error(new HttpServerErrorException(HttpStatus.BAD_GATEWAY));
+		})));
+
+		assertEquals(3, attempts.get());
+	}
+
+	@Test
+	public void neverRetriesCallsNotSafeToRepeat() {
+		ApiCallDecorator retrying = new ApiCallDecorator(new CloudFoundryApiMetrics(), null,
+			new ApiRetryPolicy(3, Collections.singletonMap("createTask", 3), 1L), null);
+		AtomicInteger attempts = new AtomicInteger();
+
+		failing(retrying.decorate("createTask", Mono.defer(() -> {
+			attempts.incrementAndGet();
+			return Mono.error(new HttpServerErrorException(HttpStatus.BAD_GATEWAY));
+		})));
+
+		assertEquals(1, attempts.get());
+	}
+
+	@Test
+	public void neverRetriesListingsHalfwayThrough() {
+		ApiCallDecorator retrying = new ApiCallDecorator(new CloudFoundryApiMetrics(), null,
+			new ApiRetryPolicy(3, Collections.emptyMap(), 1L), null);
+		AtomicInteger attempts = new AtomicInteger();
+
+		List<String> names = new ArrayList<>();
+		try {
+			retrying.decorate("listApplications", Flux.defer(() -> {
+				attempts.incrementAndGet();
+				return Flux.concat(Flux.just("a"), Flux.<String>error(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)));
+			})).doOnNext(names::add).after().get();
+			fail("Expected the call to fail");
+		}
+		catch (RuntimeException e) {
+			// expected
+		}
+
+		assertEquals(1, attempts.get());
+		assertThat(names, contains("a"));
+	}
+
+	private static void failing(Mono<?> call) {
+		try {
+			call.get();
+			fail("Expected the call to fail");
+		}
+		catch (RuntimeException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Unit tests for {@link ArtifactCache}.
+ *
+ * @author agent
+ */
+public class ArtifactCacheTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void downloadsOnce() throws Exception {
+		ArtifactCache cache = new ArtifactCache(folder.getRoot().toPath(), 1000L);
+		RemoteResource remote = new RemoteResource("http://repo/app.jar", 100);
+
+		Resource first = cache.resolve(remote);
+		Resource second = cache.resolve(remote);
+
+		assertEquals(1, remote.opened.get());
+		assertEquals(first.getFile(), second.getFile());
+		assertArrayEquals(remote.content, Files.readAllBytes(first.getFile().toPath()));
+		assertEquals(1L, cache.getMisses());
+		assertEquals(1L, cache.getHits());
+	}
+
+	@Test
+	public void knowsTheDigestOfCachedArtifacts() throws Exception {
+		ArtifactCache cache = new ArtifactCache(folder.getRoot().toPath(), 1000L);
+		RemoteResource remote = new RemoteResource("http://repo/app.jar", 100);
+
+		Resource cached = cache.resolve(remote);
+
+		assertEquals(ResourceDigests.digest(new ByteArrayResource(remote.content)), ResourceDigests.digest(cached));
+		assertEquals(1, remote.opened.get());
+	}
+
+	@Test
+	public void downloadsOnceForConcurrentDeployments() throws Exception {
+		ArtifactCache cache = new ArtifactCache(folder.getRoot().toPath(), 1000L);
+		CountDownLatch release = new CountDownLatch(1);
+		RemoteResource remote = new RemoteResource("http://repo/app.jar", 100) {
+
+			@Override
+			public InputStream getInputStream() throws IOException {
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.getInputStream();
+			}
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<?>[] resolutions = new Future<?>[4];
+			for (int i = 0; i < resolutions.length; i++) {
+				resolutions[i] = executor.submit(() -> cache.resolve(remote));
+			}
+			Thread.sleep(100L);
+			release.countDown();
+			for (Future<?> resolution : resolutions) {
+				resolution.get(5, TimeUnit.SECONDS);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(1, remote.opened.get());
+		assertEquals(1, cache.getCount());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedArtifacts() throws Exception {
+		ArtifactCache cache = new ArtifactCache(folder.getRoot().toPath(), 250L);
+		Resource a = cache.resolve(new RemoteResource("http://repo/a.jar", 100));
+		Resource b = cache.resolve(new RemoteResource("http://repo/b.jar", 100));
+		cache.resolve(new RemoteResource("http://repo/a.jar", 100));
+		Resource c = cache.resolve(new RemoteResource("http://repo/c.jar", 100));
+
+		assertTrue(a.exists());
+		assertFalse(b.exists());
+		assertTrue(c.exists());
+		assertEquals(2, cache.getCount());
+		assertEquals(200L, cache.getSize());
+	}
+
+	@Test
+	public void picksUpArtifactsOfAPreviousRun() throws Exception {
+		Path directory = folder.getRoot().toPath();
+		new ArtifactCache(directory, 1000L).resolve(new RemoteResource("http://repo/app.jar", 100));
+
+		ArtifactCache cache = new ArtifactCache(directory, 1000L);
+		RemoteResource remote = new RemoteResource("http://repo/app.jar", 100);
+		cache.resolve(remote);
+
+		assertEquals(0, remote.opened.get());
+		assertEquals(100L, cache.getSize());
+	}
+
+	@Test
+	public void onlyDeletesAbandonedDownloads() throws Exception {
+		Path directory = folder.getRoot().toPath();
+		Path abandoned = Files.createFile(directory.resolve("abandoned.download"));
+		abandoned.toFile().setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1));
+		Path inProgress = Files.createFile(directory.resolve("in-progress.download"));
+
+		new ArtifactCache(directory, 1000L);
+
+		assertFalse(Files.exists(abandoned));
+		assertTrue(Files.exists(inProgress));
+	}
+
+	@Test
+	public void usesLocalFilesAsIs() throws Exception {
+		ArtifactCache cache = new ArtifactCache(folder.newFolder().toPath(), 1000L);
+		FileSystemResource local = new FileSystemResource(folder.newFile());
+
+		assertSame(local, cache.resolve(local));
+		assertEquals(0, cache.getCount());
+	}
+
+	private static class RemoteResource extends AbstractResource {
+
+		private final URI uri;
+
+		private final byte[] content;
+
+		private final AtomicInteger opened = new AtomicInteger();
+
+		private RemoteResource(String uri, int size) {
+			this.uri = URI.create(uri);
+			this.content = new byte[size];
+			Arrays.fill(content, (byte) uri.hashCode());
+		}
+
+		@Override
+		public URI getURI() {
+			return uri;
+		}
+
+		@Override
+		public long lastModified() {
+			return 42L;
+		}
+
+		@Override
+		public String getDescription() {
+			return uri.toString();
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			opened.incrementAndGet();
+			return new ByteArrayInputStream(content);
+		}
+	}
+}
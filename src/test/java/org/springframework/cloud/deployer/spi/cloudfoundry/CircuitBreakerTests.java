@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+/**
+ * Unit tests for {@link CircuitBreaker}.
+ *
+ * @author agent
+ */
+public class CircuitBreakerTests {
+
+	private long now = 0L;
+
+	private final CircuitBreaker breaker = new CircuitBreaker(3, 1000L, () -> now);
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	@Test
+	public void opensAfterConsecutiveFailures() {
+		failing(HttpStatus.BAD_GATEWAY);
+		failing(HttpStatus.BAD_GATEWAY);
+		assertFalse(breaker.isOpen());
+		failing(HttpStatus.BAD_GATEWAY);
+		assertTrue(breaker.isOpen());
+
+		failing(HttpStatus.BAD_GATEWAY);
+		assertEquals(3, calls.get());
+		assertEquals(1L, breaker.getRejected());
+	}
+
+	@Test
+	public void countsOnlyConsecutiveFailures() {
+		failing(HttpStatus.BAD_GATEWAY);
+		failing(HttpStatus.BAD_GATEWAY);
+		failing(HttpStatus.NOT_FOUND);
+		failing(HttpStatus.BAD_GATEWAY);
+		failing(HttpStatus.TOO_MANY_REQUESTS);
+
+		assertFalse(breaker.isOpen());
+	}
+
+	@Test
+	public void closesWhenATrialCallSucceeds() {
+		opened();
+
+		now += 1000L;
+		assertEquals("ok", breaker.guard(Mono.fromCallable(() -> {
+			calls.incrementAndGet();
+			return "ok";
+		})).get());
+
+		assertFalse(breaker.isOpen());
+		assertEquals(4, calls.get());
+	}
+
+	@Test
+	public void opensAgainWhenATrialCallFails() {
+		opened();
+
+		now += 1000L;
+		failing(HttpStatus.BAD_GATEWAY);
+		assertEquals(4, calls.get());
+		assertTrue(breaker.isOpen());
+
+		failing(HttpStatus.BAD_GATEWAY);
+		assertEquals(4, calls.get());
+	}
+
+	@Test
+	public void letsOneTrialCallThroughAtATime() {
+		opened();
+		now += 1000L;
+
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+	}
+
+	private void opened() {
+		failing(HttpStatus.BAD_GATEWAY);
+		failing(HttpStatus.BAD_GATEWAY);
+		failing(HttpStatus.BAD_GATEWAY);
+		assertTrue(breaker.isOpen());
+	}
+
+	private void failing(HttpStatus status) {
+		try {
+			breaker.guard(Mono.defer(() -> {
+				calls.incrementAndGet();
+				return Mono.error(status.is5xxServerError()
+					? new HttpServerErrorException(status) : new HttpClientErrorException(status));
+			})).get();
+			fail("Expected the call to fail");
+		}
+		catch (RuntimeException e) {
+			// expected
+		}
+	}
+}
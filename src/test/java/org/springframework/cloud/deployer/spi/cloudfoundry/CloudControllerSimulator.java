@@ -0,0 +1,860 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.cloudfoundry.client.CloudFoundryClient;
+import org.cloudfoundry.client.v2.Resource;
+import org.cloudfoundry.client.v2.spaces.ListSpacesResponse;
+import org.cloudfoundry.client.v2.spaces.SpaceResource;
+import org.cloudfoundry.client.v2.spaces.Spaces;
+import org.cloudfoundry.client.v3.Link;
+import org.cloudfoundry.client.v3.Pagination;
+import org.cloudfoundry.client.v3.applications.ApplicationsV3;
+import org.cloudfoundry.client.v3.applications.CreateApplicationRequest;
+import org.cloudfoundry.client.v3.applications.CreateApplicationResponse;
+import org.cloudfoundry.client.v3.applications.ListApplicationDropletsRequest;
+import org.cloudfoundry.client.v3.applications.ListApplicationDropletsResponse;
+import org.cloudfoundry.client.v3.applications.ListApplicationsRequest;
+import org.cloudfoundry.client.v3.applications.ListApplicationsResponse;
+import org.cloudfoundry.client.v3.droplets.CopyDropletRequest;
+import org.cloudfoundry.client.v3.droplets.CopyDropletResponse;
+import org.cloudfoundry.client.v3.droplets.Droplets;
+import org.cloudfoundry.client.v3.droplets.GetDropletRequest;
+import org.cloudfoundry.client.v3.droplets.GetDropletResponse;
+import org.cloudfoundry.client.v3.packages.CreatePackageRequest;
+import org.cloudfoundry.client.v3.packages.CreatePackageResponse;
+import org.cloudfoundry.client.v3.packages.GetPackageRequest;
+import org.cloudfoundry.client.v3.packages.GetPackageResponse;
+import org.cloudfoundry.client.v3.packages.Packages;
+import org.cloudfoundry.client.v3.packages.StagePackageRequest;
+import org.cloudfoundry.client.v3.packages.StagePackageResponse;
+import org.cloudfoundry.client.v3.packages.UploadPackageRequest;
+import org.cloudfoundry.client.v3.packages.UploadPackageResponse;
+import org.cloudfoundry.client.v3.tasks.CancelTaskRequest;
+import org.cloudfoundry.client.v3.tasks.CancelTaskResponse;
+import org.cloudfoundry.client.v3.tasks.CreateTaskRequest;
+import org.cloudfoundry.client.v3.tasks.CreateTaskResponse;
+import org.cloudfoundry.client.v3.tasks.GetTaskRequest;
+import org.cloudfoundry.client.v3.tasks.GetTaskResponse;
+import org.cloudfoundry.client.v3.tasks.ListTasksRequest;
+import org.cloudfoundry.client.v3.tasks.ListTasksResponse;
+import org.cloudfoundry.client.v3.tasks.Task;
+import org.cloudfoundry.client.v3.tasks.Tasks;
+import org.cloudfoundry.operations.CloudFoundryOperations;
+import org.cloudfoundry.operations.applications.ApplicationDetail;
+import org.cloudfoundry.operations.applications.ApplicationSummary;
+import org.cloudfoundry.operations.applications.Applications;
+import org.cloudfoundry.operations.applications.DeleteApplicationRequest;
+import org.cloudfoundry.operations.applications.GetApplicationRequest;
+import org.cloudfoundry.operations.applications.PushApplicationRequest;
+import org.cloudfoundry.operations.applications.SetEnvironmentVariableApplicationRequest;
+import org.cloudfoundry.operations.applications.StartApplicationRequest;
+import org.cloudfoundry.operations.services.BindServiceInstanceRequest;
+import org.cloudfoundry.operations.services.ServiceInstance;
+import org.cloudfoundry.operations.services.Services;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+/**
+ * An embeddable, in-memory fake of the Cloud Controller, for exercising {@link CloudFoundryAppDeployer} and
+ * {@link CloudFoundryTaskLauncher} at scale without a Cloud Foundry installation.
+ *
+ * <p>It implements the subset of {@link CloudFoundryClient} (v2 spaces, v3 apps, packages, droplets and tasks) and
+ * {@link CloudFoundryOperations} (push, environment, start, status, delete, service instances and bindings) that the
+ * deployers use.
+ * Resources go through time based state transitions: packages are {@code PROCESSING_UPLOAD} then {@code READY},
+ * droplets {@code PENDING} then {@code STAGED}, app instances {@code STARTING} then {@code RUNNING} (or
+ * {@code CRASHED}) and tasks {@code PENDING}, {@code RUNNING} then {@code SUCCEEDED}. Every call can be given a
+ * latency, a random server error rate and a global rate limit, answered with 429 and a {@code Retry-After}
+ * header.</p>
+ *
+ * @author agent
+ */
+public class CloudControllerSimulator {
+
+	private static final String SPACE_ID = "space-id";
+
+	private static final int TASKS_PER_PAGE = 50;
+
+	private final Map<String, App> apps = new ConcurrentHashMap<>();
+
+	private final Map<String, Package> packages = new ConcurrentHashMap<>();
+
+	private final Map<String, Droplet> droplets = new ConcurrentHashMap<>();
+
+	private final Map<String, SimulatedTask> tasks = new ConcurrentHashMap<>();
+
+	/**
+	 * Service of each service instance, by instance name.
+	 */
+	private final Map<String, String> serviceInstances = new ConcurrentHashMap<>();
+
+	private final AtomicLong requests = new AtomicLong();
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	private final AtomicLong taskSequence = new AtomicLong();
+
+	private Duration latency = Duration.ZERO;
+
+	private double errorRate;
+
+	private int rateLimit;
+
+	private long rateWindowStart;
+
+	private int rateWindowCount;
+
+	private long processingTime;
+
+	private long stagingTime;
+
+	private long startupTime;
+
+	private long taskDuration;
+
+	private double crashRate;
+
+	/**
+	 * Delay every answer by the given duration.
+	 */
+	public CloudControllerSimulator latency(Duration latency) {
+		this.latency = latency;
+		return this;
+	}
+
+	/**
+	 * Fail the given fraction of calls with a 502.
+	 */
+	public CloudControllerSimulator errorRate(double errorRate) {
+		this.errorRate = errorRate;
+		return this;
+	}
+
+	/**
+	 * Accept at most the given number of calls per second, rejecting the others with a 429. 0 means no limit.
+	 */
+	public CloudControllerSimulator rateLimit(int requestsPerSecond) {
+		this.rateLimit = requestsPerSecond;
+		return this;
+	}
+
+	/**
+	 * How long uploaded packages take to become {@code READY}.
+	 */
+	public CloudControllerSimulator processingTime(Duration processingTime) {
+		this.processingTime = processingTime.toMillis();
+		return this;
+	}
+
+	/**
+	 * How long droplets take to be {@code STAGED}, and pushed apps to be staged.
+	 */
+	public CloudControllerSimulator stagingTime(Duration stagingTime) {
+		this.stagingTime = stagingTime.toMillis();
+		return this;
+	}
+
+	/**
+	 * How long started app instances stay {@code STARTING}.
+	 */
+	public CloudControllerSimulator startupTime(Duration startupTime) {
+		this.startupTime = startupTime.toMillis();
+		return this;
+	}
+
+	/**
+	 * How long tasks run before {@code SUCCEEDED}. They are {@code PENDING} for the first tenth of that time.
+	 */
+	public CloudControllerSimulator taskDuration(Duration taskDuration) {
+		this.taskDuration = taskDuration.toMillis();
+		return this;
+	}
+
+	/**
+	 * Fraction of started app instances that end up {@code CRASHED}.
+	 */
+	public CloudControllerSimulator crashRate(double crashRate) {
+		this.crashRate = crashRate;
+		return this;
+	}
+
+	/**
+	 * Create a service instance of the given service. Binding an instance that was not created first creates it as
+	 * a {@code user-provided} one.
+	 */
+	public CloudControllerSimulator serviceInstance(String name, String service) {
+		serviceInstances.put(name, service);
+		return this;
+	}
+
+	/**
+	 * Delete an app behind the back of the deployers, as another client would.
+	 */
+	public void deleteApplication(String name) {
+		deleteApp(appByName(name));
+	}
+
+	/**
+	 * Return the number of calls made so far, including rejected ones.
+	 */
+	public long getRequestCount() {
+		return requests.get();
+	}
+
+	/**
+	 * Return the number of calls rejected by the rate limit.
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	/**
+	 * Return the names of the apps that currently exist.
+	 */
+	public Set<String> getApplicationNames() {
+		return apps.values().stream().map(app -> app.name).collect(Collectors.toSet());
+	}
+
+	/**
+	 * Return the service instances bound to the given app.
+	 */
+	public Set<String> getBoundServices(String applicationName) {
+		App app = appByName(applicationName);
+		return app == null ? new HashSet<>() : app.services;
+	}
+
+	/**
+	 * Return the environment variables set on the given app.
+	 */
+	public Map<String, String> getEnvironment(String applicationName) {
+		App app = appByName(applicationName);
+		return app == null ? new ConcurrentHashMap<>() : app.environment;
+	}
+
+	public CloudFoundryClient client() {
+		return stub(CloudFoundryClient.class, (method, args) -> {
+			switch (method) {
+				case "applicationsV3":
+					return stub(ApplicationsV3.class, this::applicationsV3);
+				case "packages":
+					return stub(Packages.class, this::packages);
+				case "droplets":
+					return stub(Droplets.class, this::droplets);
+				case "tasks":
+					return stub(Tasks.class, this::tasks);
+				case "spaces":
+					return stub(Spaces.class, this::spaces);
+				default:
+					throw new UnsupportedOperationException("Not simulated: CloudFoundryClient." + method);
+			}
+		});
+	}
+
+	public CloudFoundryOperations operations() {
+		return stub(CloudFoundryOperations.class, (method, args) -> {
+			switch (method) {
+				case "applications":
+					return stub(Applications.class, this::applications);
+				case "services":
+					return stub(Services.class, this::services);
+				default:
+					throw new UnsupportedOperationException("Not simulated: CloudFoundryOperations." + method);
+			}
+		});
+	}
+
+	private Object applicationsV3(String method, Object[] args) {
+		switch (method) {
+			case "list":
+				return respond(() -> {
+					ListApplicationsRequest request = (ListApplicationsRequest) args[0];
+					ListApplicationsResponse.ListApplicationsResponseBuilder response = ListApplicationsResponse.builder();
+					apps.values().stream()
+						.filter(app -> request.getNames().isEmpty() || request.getNames().contains(app.name))
+						.forEach(app -> response.resource(ListApplicationsResponse.Resource.builder()
+							.id(app.id)
+							.name(app.name)
+							.build()));
+					return response.build();
+				});
+			case "create":
+				return respond(() -> {
+					App app = createApp(((CreateApplicationRequest) args[0]).getName());
+					return CreateApplicationResponse.builder()
+						.id(app.id)
+						.name(app.name)
+						.build();
+				});
+			case "delete":
+				return respond(() -> {
+					deleteApp(apps.get(((org.cloudfoundry.client.v3.applications.DeleteApplicationRequest) args[0]).getApplicationId()));
+					return null;
+				});
+			case "listDroplets":
+				return respond(() -> {
+					String applicationId = ((ListApplicationDropletsRequest) args[0]).getApplicationId();
+					existing(apps, applicationId);
+					ListApplicationDropletsResponse.ListApplicationDropletsResponseBuilder response = ListApplicationDropletsResponse.builder();
+					droplets.values().stream()
+						.filter(droplet -> droplet.applicationId.equals(applicationId))
+						.forEach(droplet -> response.resource(ListApplicationDropletsResponse.Resource.builder()
+							.id(droplet.id)
+							.state(droplet.state())
+							.build()));
+					return response.build();
+				});
+			default:
+				throw new UnsupportedOperationException("Not simulated: ApplicationsV3." + method);
+		}
+	}
+
+	private Object packages(String method, Object[] args) {
+		switch (method) {
+			case "create":
+				return respond(() -> {
+					Package pkg = new Package(((CreatePackageRequest) args[0]).getApplicationId());
+					packages.put(pkg.id, pkg);
+					return CreatePackageResponse.builder()
+						.id(pkg.id)
+						.state(pkg.state())
+						.build();
+				});
+			case "upload":
+				return respond(() -> {
+					UploadPackageRequest request = (UploadPackageRequest) args[0];
+					Package pkg = existing(packages, request.getPackageId());
+					pkg.size = drain(request.getBits());
+					pkg.uploadedAt = System.currentTimeMillis();
+					return UploadPackageResponse.builder()
+						.id(pkg.id)
+						.state(pkg.state())
+						.build();
+				});
+			case "get":
+				return respond(() -> {
+					Package pkg = existing(packages, ((GetPackageRequest) args[0]).getPackageId());
+					return GetPackageResponse.builder()
+						.id(pkg.id)
+						.state(pkg.state())
+						.build();
+				});
+			case "stage":
+				return respond(() -> {
+					Package pkg = existing(packages, ((StagePackageRequest) args[0]).getPackageId());
+					Droplet droplet = new Droplet(pkg.applicationId);
+					droplets.put(droplet.id, droplet);
+					return StagePackageResponse.builder()
+						.id(droplet.id)
+						.state(droplet.state())
+						.build();
+				});
+			default:
+				throw new UnsupportedOperationException("Not simulated: Packages." + method);
+		}
+	}
+
+	private Object droplets(String method, Object[] args) {
+		switch (method) {
+			case "get":
+				return respond(() -> {
+					Droplet droplet = existing(droplets, ((GetDropletRequest) args[0]).getDropletId());
+					return GetDropletResponse.builder()
+						.id(droplet.id)
+						.state(droplet.state())
+						.build();
+				});
+			case "copy":
+				return respond(() -> {
+					CopyDropletRequest request = (CopyDropletRequest) args[0];
+					existing(droplets, request.getDropletId());
+					Droplet copy = new Droplet(request.getApplicationId());
+					droplets.put(copy.id, copy);
+					return CopyDropletResponse.builder()
+						.id(copy.id)
+						.state(copy.state())
+						.build();
+				});
+			default:
+				throw new UnsupportedOperationException("Not simulated: Droplets." + method);
+		}
+	}
+
+	private Object tasks(String method, Object[] args) {
+		switch (method) {
+			case "create":
+				return respond(() -> {
+					CreateTaskRequest request = (CreateTaskRequest) args[0];
+					existing(apps, request.getApplicationId());
+					SimulatedTask task = new SimulatedTask(request.getApplicationId(), request.getName());
+					tasks.put(task.id, task);
+					return CreateTaskResponse.builder()
+						.id(task.id)
+						.name(task.name)
+						.state(task.state())
+						.build();
+				});
+			case "get":
+				return respond(() -> {
+					SimulatedTask task = task(((GetTaskRequest) args[0]).getTaskId());
+					return GetTaskResponse.builder()
+						.id(task.id)
+						.name(task.name)
+						.state(task.state())
+						.build();
+				});
+			case "list":
+				return respond(() -> {
+					ListTasksRequest request = (ListTasksRequest) args[0];
+					List<SimulatedTask> matching = tasks.values().stream()
+						.filter(task -> request.getApplicationIds() == null || request.getApplicationIds().isEmpty()
+							|| request.getApplicationIds().contains(task.applicationId))
+						.sorted("-created_at".equals(request.getOrderBy())
+							? (a, b) -> Long.compare(b.sequence, a.sequence)
+							: (a, b) -> a.id.compareTo(b.id))
+						.collect(Collectors.toList());
+					int page = request.getPage() == null ? 1 : request.getPage();
+					int from = Math.min((page - 1) * TASKS_PER_PAGE, matching.size());
+					int to = Math.min(from + TASKS_PER_PAGE, matching.size());
+					ListTasksResponse.ListTasksResponseBuilder response = ListTasksResponse.builder()
+						.pagination(Pagination.builder()
+							.totalResults(matching.size())
+							.next(to < matching.size() ? Link.builder().href("/v3/tasks?page=" + (page + 1)).build() : null)
+							.build());
+					matching.subList(from, to).forEach(task -> response.resource(ListTasksResponse.Resource.builder()
+						.id(task.id)
+						.name(task.name)
+						.state(task.state())
+						.createdAt(Instant.ofEpochMilli(task.createdAt).toString())
+						.link("app", Link.builder().href("/v3/apps/" + task.applicationId).build())
+						.build()));
+					return response.build();
+				});
+			case "cancel":
+				return respond(() -> {
+					SimulatedTask task = task(((CancelTaskRequest) args[0]).getTaskId());
+					task.cancelled = true;
+					return CancelTaskResponse.builder()
+						.id(task.id)
+						.name(task.name)
+						.state(task.state())
+						.build();
+				});
+			default:
+				throw new UnsupportedOperationException("Not simulated: Tasks." + method);
+		}
+	}
+
+	private Object spaces(String method, Object[] args) {
+		if (!"list".equals(method)) {
+			throw new UnsupportedOperationException("Not simulated: Spaces." + method);
+		}
+		return respond(() -> ListSpacesResponse.builder()
+			.resource(SpaceResource.builder()
+				.metadata(Resource.Metadata.builder()
+					.id(SPACE_ID)
+					.build())
+				.build())
+			.totalPages(1)
+			.build());
+	}
+
+	private Object applications(String method, Object[] args) {
+		switch (method) {
+			case "push":
+				return respond(() -> {
+					PushApplicationRequest request = (PushApplicationRequest) args[0];
+					App app = appByName(request.getName());
+					if (app == null) {
+						app = createApp(request.getName());
+					}
+					app.instances = request.getInstances() == null ? 1 : request.getInstances();
+					drain(request.getApplication());
+					Droplet droplet = new Droplet(app.id);
+					droplets.put(droplet.id, droplet);
+					if (request.getNoStart() == null || !request.getNoStart()) {
+						app.start();
+					}
+					return null;
+				});
+			case "setEnvironmentVariable":
+				return respond(() -> {
+					SetEnvironmentVariableApplicationRequest request = (SetEnvironmentVariableApplicationRequest) args[0];
+					existingByName(request.getName()).environment.put(request.getVariableName(), request.getVariableValue());
+					return null;
+				});
+			case "start":
+				return respond(() -> {
+					existingByName(((StartApplicationRequest) args[0]).getName()).start();
+					return null;
+				});
+			case "get":
+				return respond(() -> detail(existingByName(((GetApplicationRequest) args[0]).getName())));
+			case "delete":
+				return respond(() -> {
+					deleteApp(existingByName(((DeleteApplicationRequest) args[0]).getName()));
+					return null;
+				});
+			case "list":
+				return respondMany(() -> apps.values().stream()
+					.map(this::summary)
+					.collect(Collectors.toList()));
+			default:
+				throw new UnsupportedOperationException("Not simulated: Applications." + method);
+		}
+	}
+
+	private Object services(String method, Object[] args) {
+		switch (method) {
+			case "bind":
+				return respond(() -> {
+					BindServiceInstanceRequest request = (BindServiceInstanceRequest) args[0];
+					serviceInstances.putIfAbsent(request.getServiceInstanceName(), "user-provided");
+					if (!existingByName(request.getApplicationName()).services.add(request.getServiceInstanceName())) {
+						throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "The app is already bound to the service.");
+					}
+					return null;
+				});
+			case "listInstances":
+				return respondMany(() -> serviceInstances.entrySet().stream()
+					.map(instance -> ServiceInstance.builder()
+						.id(instance.getKey())
+						.name(instance.getKey())
+						.service(instance.getValue())
+						.applications(apps.values().stream()
+							.filter(app -> app.services.contains(instance.getKey()))
+							.map(app -> app.name)
+							.collect(Collectors.toList()))
+						.build())
+					.collect(Collectors.toList()));
+			default:
+				throw new UnsupportedOperationException("Not simulated: Services." + method);
+		}
+	}
+
+	private ApplicationDetail detail(App app) {
+		List<ApplicationDetail.InstanceDetail> instances = new ArrayList<>();
+		for (String state : app.instanceStates()) {
+			instances.add(ApplicationDetail.InstanceDetail.builder()
+				.state(state)
+				.build());
+		}
+		return ApplicationDetail.builder()
+			.id(app.id)
+			.name(app.name)
+			.requestedState(app.startedAt < 0 ? "STOPPED" : "STARTED")
+			.instances(app.instances)
+			.runningInstances((int) instances.stream().filter(i -> "RUNNING".equals(i.getState())).count())
+			.instanceDetails(instances)
+			.build();
+	}
+
+	private ApplicationSummary summary(App app) {
+		ApplicationDetail detail = detail(app);
+		return ApplicationSummary.builder()
+			.id(app.id)
+			.name(app.name)
+			.requestedState(detail.getRequestedState())
+			.instances(detail.getInstances())
+			.runningInstances(detail.getRunningInstances())
+			.build();
+	}
+
+	private App createApp(String name) {
+		if (appByName(name) != null) {
+			throw new HttpClientErrorException(HttpStatus.UNPROCESSABLE_ENTITY, "App name " + name + " is taken");
+		}
+		App app = new App(name);
+		apps.put(app.id, app);
+		return app;
+	}
+
+	private void deleteApp(App app) {
+		if (app == null) {
+			throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+		}
+		apps.remove(app.id);
+		packages.values().removeIf(pkg -> pkg.applicationId.equals(app.id));
+		droplets.values().removeIf(droplet -> droplet.applicationId.equals(app.id));
+		tasks.values().removeIf(task -> task.applicationId.equals(app.id));
+	}
+
+	private App appByName(String name) {
+		return apps.values().stream().filter(app -> app.name.equals(name)).findFirst().orElse(null);
+	}
+
+	private App existingByName(String name) {
+		App app = appByName(name);
+		if (app == null) {
+			throw new IllegalArgumentException("Application " + name + " does not exist");
+		}
+		return app;
+	}
+
+	/**
+	 * Look a task up by id. Also accepts the id of an application, answering with its most recent task, which is how
+	 * {@link CloudFoundryTaskLauncher} currently addresses tasks.
+	 */
+	private SimulatedTask task(String id) {
+		SimulatedTask task = tasks.get(id);
+		if (task == null) {
+			task = tasks.values().stream()
+				.filter(t -> t.applicationId.equals(id))
+				.max((a, b) -> Long.compare(a.createdAt, b.createdAt))
+				.orElse(null);
+		}
+		if (task == null) {
+			throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+		}
+		return task;
+	}
+
+	private static <T> T existing(Map<String, T> resources, String id) {
+		T resource = resources.get(id);
+		if (resource == null) {
+			throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+		}
+		return resource;
+	}
+
+	private <T> Mono<T> respond(Supplier<T> answer) {
+		Mono<T> response = Mono.defer(() -> {
+			RuntimeException failure = admit();
+			if (failure != null) {
+				return Mono.<T>error(failure);
+			}
+			try {
+				T value = answer.get();
+				return value == null ? Mono.<T>empty() : Mono.just(value);
+			}
+			catch (RuntimeException e) {
+				return Mono.<T>error(e);
+			}
+		});
+		if (latency.isZero()) {
+			return response;
+		}
+		return Mono.delay(latency)
+			.then(tick -> response);
+	}
+
+	private <T> Flux<T> respondMany(Supplier<Collection<T>> answer) {
+		return respond(answer)
+			.flatMap(Flux::fromIterable);
+	}
+
+	/**
+	 * Count a call against the rate limit and error rate.
+	 *
+	 * @return the failure to answer the call with, or {@literal null} if it goes through
+	 */
+	private synchronized RuntimeException admit() {
+		requests.incrementAndGet();
+		if (rateLimit > 0) {
+			long now = System.currentTimeMillis();
+			if (now - rateWindowStart >= 1000L) {
+				rateWindowStart = now;
+				rateWindowCount = 0;
+			}
+			if (++rateWindowCount > rateLimit) {
+				rejected.incrementAndGet();
+				HttpHeaders headers = new HttpHeaders();
+				headers.set("Retry-After", String.valueOf(Math.max(1L, (rateWindowStart + 1000L - now + 999L) / 1000L)));
+				headers.set("X-RateLimit-Limit", String.valueOf(rateLimit));
+				headers.set("X-RateLimit-Remaining", "0");
+				headers.set("X-RateLimit-Reset", String.valueOf((rateWindowStart + 1000L) / 1000L));
+				return new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers,
+					new byte[0], StandardCharsets.UTF_8);
+			}
+		}
+		if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+			return new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+		}
+		return null;
+	}
+
+	private static long drain(InputStream bits) {
+		byte[] buffer = new byte[8192];
+		long size = 0;
+		try (InputStream in = bits) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				size += read;
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return size;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T stub(Class<T> type, BiFunction<String, Object[], Object> answer) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "toString":
+					return "Simulated" + type.getSimpleName();
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+				default:
+					return answer.apply(method.getName(), args);
+			}
+		});
+	}
+
+	private class App {
+
+		private final String id = UUID.randomUUID().toString();
+
+		private final String name;
+
+		private final Map<String, String> environment = new ConcurrentHashMap<>();
+
+		private final Set<String> services = ConcurrentHashMap.newKeySet();
+
+		private int instances = 1;
+
+		private long startedAt = -1L;
+
+		private boolean[] crashes = new boolean[0];
+
+		private App(String name) {
+			this.name = name;
+		}
+
+		private synchronized void start() {
+			startedAt = System.currentTimeMillis();
+			crashes = new boolean[instances];
+			for (int i = 0; i < instances; i++) {
+				crashes[i] = crashRate > 0 && ThreadLocalRandom.current().nextDouble() < crashRate;
+			}
+		}
+
+		private synchronized List<String> instanceStates() {
+			List<String> states = new ArrayList<>();
+			if (startedAt < 0) {
+				return states;
+			}
+			boolean started = System.currentTimeMillis() - startedAt >= stagingTime + startupTime;
+			for (int i = 0; i < instances; i++) {
+				states.add(!started ? "STARTING" : crashes[i] ? "CRASHED" : "RUNNING");
+			}
+			return states;
+		}
+	}
+
+	private class Package {
+
+		private final String id = UUID.randomUUID().toString();
+
+		private final String applicationId;
+
+		private long uploadedAt = -1L;
+
+		private long size;
+
+		private Package(String applicationId) {
+			this.applicationId = applicationId;
+		}
+
+		private String state() {
+			if (uploadedAt < 0) {
+				return "AWAITING_UPLOAD";
+			}
+			return System.currentTimeMillis() - uploadedAt >= processingTime ? "READY" : "PROCESSING_UPLOAD";
+		}
+	}
+
+	private class Droplet {
+
+		private final String id = UUID.randomUUID().toString();
+
+		private final String applicationId;
+
+		private final long createdAt = System.currentTimeMillis();
+
+		private Droplet(String applicationId) {
+			this.applicationId = applicationId;
+		}
+
+		private String state() {
+			return System.currentTimeMillis() - createdAt >= stagingTime ? "STAGED" : "PENDING";
+		}
+	}
+
+	private class SimulatedTask {
+
+		private final String id = UUID.randomUUID().toString();
+
+		private final String applicationId;
+
+		private final String name;
+
+		private final long createdAt = System.currentTimeMillis();
+
+		/**
+		 * Tells apart tasks created within the same millisecond.
+		 */
+		private final long sequence = taskSequence.incrementAndGet();
+
+		private volatile boolean cancelled;
+
+		private SimulatedTask(String applicationId, String name) {
+			this.applicationId = applicationId;
+			this.name = name;
+		}
+
+		private String state() {
+			if (cancelled) {
+				return Task.CANCELING_STATE;
+			}
+			long elapsed = System.currentTimeMillis() - createdAt;
+			if (elapsed >= taskDuration) {
+				return Task.SUCCEEDED_STATE;
+			}
+			return elapsed >= taskDuration / 10 ? Task.RUNNING_STATE : Task.PENDING_STATE;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+/**
+ * Unit tests for {@link CloudFoundryApiMetrics}.
+ *
+ * @author agent
+ */
+public class CloudFoundryApiMetricsTests {
+
+	private final CloudFoundryApiMetrics metrics = new CloudFoundryApiMetrics();
+
+	@Test
+	public void timesEachSubscription() {
+		Mono<String> call = metrics.timed("push", Mono.just("ok"));
+		call.get();
+		call.get();
+
+		assertEquals(2L, metrics.getCount("push", "success"));
+		Map<String, Number> snapshot = metrics.snapshot();
+		assertThat(snapshot, hasEntry("cloudfoundry.api.push.success.count", (Number) 2L));
+		assertThat(snapshot, hasKey("cloudfoundry.api.push.success.totalTime"));
+		assertThat(snapshot, hasKey("cloudfoundry.api.push.success.maxTime"));
+	}
+
+	@Test
+	public void tagsByOutcome() {
+		failing(metrics.timed("bind", Mono.error(new HttpClientErrorException(HttpStatus.NOT_FOUND))));
+		failing(metrics.timed("bind", Mono.error(new HttpServerErrorException(HttpStatus.BAD_GATEWAY))));
+		failing(metrics.timed("bind", Mono.error(new IllegalStateException())));
+
+		assertEquals(0L, metrics.getCount("bind", "success"));
+		assertEquals(1L, metrics.getCount("bind", "client_error"));
+		assertEquals(1L, metrics.getCount("bind", "server_error"));
+		assertEquals(1L, metrics.getCount("bind", "error"));
+	}
+
+	@Test
+	public void timesFluxesUpToCompletion() {
+		metrics.timed("listApplications", Flux.just("a", "b", "c")).count().get();
+
+		assertEquals(1L, metrics.getCount("listApplications", "success"));
+	}
+
+	@Test
+	public void readsGaugesOnSnapshot() {
+		int[] value = {1};
+		metrics.gauge("deployer.deployments.queued", () -> value[0]);
+		value[0] = 5;
+
+		assertThat(metrics.snapshot(), hasEntry("cloudfoundry.deployer.deployments.queued", (Number) 5));
+	}
+
+	@Test
+	public void tracesSampledCallsOnly() {
+		List<String> spans = new ArrayList<>();
+		ApiCallTracer tracer = (operation, outcome, startTime, durationNanos) -> spans.add(operation + "." + outcome);
+
+		new CloudFoundryApiMetrics(tracer, 0.0).timed("createTask", Mono.just("task")).get();
+		assertThat(spans, is(empty()));
+
+		CloudFoundryApiMetrics traced = new CloudFoundryApiMetrics(tracer, 1.0);
+		traced.timed("createTask", Mono.just("task")).get();
+		failing(traced.timed("status", Mono.error(new HttpServerErrorException(HttpStatus.BAD_GATEWAY))));
+		assertThat(spans, contains("createTask.success", "status.server_error"));
+	}
+
+	private static void failing(Mono<?> call) {
+		try {
+			call.get();
+			fail("Expected the call to fail");
+		}
+		catch (RuntimeException e) {
+			// expected
+		}
+	}
+}
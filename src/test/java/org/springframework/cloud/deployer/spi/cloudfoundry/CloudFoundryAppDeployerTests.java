@@ -0,0 +1,250 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.cloudfoundry.operations.CloudFoundryOperations;
+import org.cloudfoundry.operations.applications.ApplicationDetail;
+import org.cloudfoundry.operations.applications.ApplicationSummary;
+import org.cloudfoundry.operations.applications.Applications;
+import org.cloudfoundry.operations.applications.GetApplicationRequest;
+import org.cloudfoundry.operations.applications.PushApplicationRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.deployer.spi.core.AppDefinition;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+/**
+ * Unit tests for {@link CloudFoundryAppDeployer}, against a mocked {@link CloudFoundryOperations}.
+ *
+ * @author agent
+ */
+public class CloudFoundryAppDeployerTests {
+
+	private final CloudFoundryDeployerProperties properties = new CloudFoundryDeployerProperties();
+
+	private final CloudFoundryOperations operations = mock(CloudFoundryOperations.class);
+
+	private final Applications applications = mock(Applications.class);
+
+	private CloudFoundryAppDeployer deployer;
+
+	@Before
+	public void setUp() {
+		when(operations.applications()).thenReturn(applications);
+		properties.setStatusCacheTtl(60_000L);
+		properties.setStatusCacheRefresh(false);
+		deployer = new CloudFoundryAppDeployer(properties, operations, new CloudFoundryApiMetrics());
+	}
+
+	@After
+	public void tearDown() {
+		deployer.destroy();
+	}
+
+	@Test
+	public void resolvesStatusesWithOneListing() {
+		when(applications.list()).thenReturn(Flux.just(
+			runningSummary("group-app0"),
+			ApplicationSummary.builder()
+				.id("group-app1-id")
+				.name("group-app1")
+				.requestedState("STARTED")
+				.instances(1)
+				.runningInstances(0)
+				.build(),
+			runningSummary("other-app")));
+		when(applications.get(any(GetApplicationRequest.class))).thenReturn(Mono.just(detail("group-app1", "STARTING")));
+
+		Map<String, AppStatus> statuses = deployer.status(Arrays.asList("group-app0", "group-app1", "group-missing"));
+
+		assertThat(statuses.keySet(), contains("group-app0", "group-app1", "group-missing"));
+		assertThat(statuses.get("group-app0").getState(), is(DeploymentState.deployed));
+		assertThat(statuses.get("group-app1").getState(), is(DeploymentState.deploying));
+		assertThat(statuses.get("group-missing").getState(), is(DeploymentState.unknown));
+		verify(applications, times(1)).list();
+		verify(applications, times(1)).get(any(GetApplicationRequest.class));
+	}
+
+	@Test
+	public void doesNotCacheStatusesWhenListingFails() {
+		when(applications.list()).thenReturn(
+			Flux.error(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)),
+			Flux.just(runningSummary("group-app")));
+
+		Map<String, AppStatus> degraded = deployer.status(Collections.singletonList("group-app"));
+		assertThat(degraded.get("group-app").getState(), is(DeploymentState.unknown));
+
+		Map<String, AppStatus> statuses = deployer.status(Collections.singletonList("group-app"));
+		assertThat(statuses.get("group-app").getState(), is(DeploymentState.deployed));
+	}
+
+	@Test
+	public void refusesToDeployAGroupWhenListingFails() {
+		when(applications.list()).thenReturn(Flux.error(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)));
+
+		try {
+			deployer.deployGroup(Arrays.asList(request("app0"), request("app1")));
+			fail("Expected the group deploy to be refused");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		verify(applications, never()).push(any(PushApplicationRequest.class));
+	}
+
+	@Test
+	public void refusesToDeployWhenLookupFails() {
+		when(applications.get(any(GetApplicationRequest.class)))
+			.thenReturn(Mono.error(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)));
+
+		try {
+			deployer.deploy(request("app"));
+			fail("Expected the deploy to be refused");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		verify(applications, never()).push(any(PushApplicationRequest.class));
+	}
+
+	@Test
+	public void refusesToDeployAnAppAlreadyBeingDeployed() {
+		when(applications.get(any(GetApplicationRequest.class)))
+			.thenReturn(Mono.error(new IllegalArgumentException("Application group-app does not exist")));
+		when(applications.push(any(PushApplicationRequest.class))).thenReturn(Mono.never());
+
+		deployer.deploy(request("app"));
+		try {
+			deployer.deploy(request("app"));
+			fail("Expected the second deploy to be refused");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		try {
+			deployer.deployGroup(Arrays.asList(request("app"), request("other")));
+			fail("Expected the group deploy to be refused");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		verify(applications, times(1)).push(any(PushApplicationRequest.class));
+	}
+
+	@Test
+	public void doesNotCacheStatusesWhenLookupFails() {
+		when(applications.get(any(GetApplicationRequest.class))).thenReturn(
+			Mono.error(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)),
+			Mono.just(runningDetail("group-app")));
+
+		assertThat(deployer.status("group-app").getState(), is(DeploymentState.unknown));
+		assertThat(deployer.status("group-app").getState(), is(DeploymentState.deployed));
+	}
+
+	@Test
+	public void cachesAppsFoundMissing() {
+		when(applications.get(any(GetApplicationRequest.class))).thenReturn(
+			Mono.error(new IllegalArgumentException("Application group-app does not exist")),
+			Mono.just(runningDetail("group-app")));
+
+		assertThat(deployer.status("group-app").getState(), is(DeploymentState.unknown));
+		assertThat(deployer.status("group-app").getState(), is(DeploymentState.unknown));
+		verify(applications, times(1)).get(any(GetApplicationRequest.class));
+	}
+
+	@Test
+	public void watchKeepsTheLastKnownStateWhenListingFails() {
+		deployer.destroy();
+		properties.setStatusWatchInterval(10L);
+		deployer = new CloudFoundryAppDeployer(properties, operations, new CloudFoundryApiMetrics());
+		when(applications.list()).thenReturn(
+			Flux.just(runningSummary("group-app")),
+			Flux.error(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)),
+			Flux.just(runningSummary("group-app")));
+		List<DeploymentState> states = new CopyOnWriteArrayList<>();
+
+		deployer.watch("group-app")
+			.doOnNext(status -> states.add(status.getState()))
+			.subscribe();
+
+		verify(applications, timeout(5_000L).atLeast(3)).list();
+		assertThat(states, contains(DeploymentState.deployed));
+	}
+
+	private static ApplicationDetail runningDetail(String name) {
+		return detail(name, "RUNNING");
+	}
+
+	private static ApplicationDetail detail(String name, String instanceState) {
+		return ApplicationDetail.builder()
+			.id(name + "-id")
+			.name(name)
+			.requestedState("STARTED")
+			.instances(1)
+			.runningInstances(1)
+			.instanceDetails(Collections.singletonList(ApplicationDetail.InstanceDetail.builder()
+				.state(instanceState)
+				.build()))
+			.build();
+	}
+
+	private static ApplicationSummary runningSummary(String name) {
+		return ApplicationSummary.builder()
+			.id(name + "-id")
+			.name(name)
+			.requestedState("STARTED")
+			.instances(1)
+			.runningInstances(1)
+			.build();
+	}
+
+	private static AppDeploymentRequest request(String name) {
+		Map<String, String> environment = new HashMap<>();
+		environment.put(AppDeployer.GROUP_PROPERTY_KEY, "group");
+		return new AppDeploymentRequest(new AppDefinition(name, Collections.singletonMap("foo", "bar")),
+			new ByteArrayResource("bits".getBytes()), environment);
+	}
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.deployer.spi.core.AppDefinition;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.cloud.deployer.spi.task.LaunchState;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Exercises {@link CloudFoundryAppDeployer} and {@link CloudFoundryTaskLauncher} against a
+ * {@link CloudControllerSimulator}.
+ *
+ * @author agent
+ */
+public class CloudFoundryDeployerSimulationTests {
+
+	private final CloudControllerSimulator simulator = new CloudControllerSimulator();
+
+	private final CloudFoundryDeployerProperties properties = new CloudFoundryDeployerProperties();
+
+	private CloudFoundryAppDeployer appDeployer;
+
+	private CloudFoundryTaskLauncher taskLauncher;
+
+	@After
+	public void tearDown() {
+		if (appDeployer != null) {
+			appDeployer.destroy();
+		}
+		if (taskLauncher != null) {
+			taskLauncher.destroy();
+		}
+	}
+
+	@Test
+	public void deploysManyAppsAndReportsTheirStatusInBulk() {
+		properties.setServices(Collections.singleton("my-service"));
+		appDeployer = new CloudFoundryAppDeployer(properties, simulator.operations());
+
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			AppDeploymentRequest request = request("app" + i);
+			appDeployer.asyncDeploy(request).get();
+			ids.add("group-app" + i);
+		}
+		ids.add("group-missing");
+
+		Map<String, AppStatus> statuses = appDeployer.status(ids);
+		assertThat(statuses.size(), is(501));
+		assertThat(statuses.get("group-app42").getState(), is(DeploymentState.deployed));
+		assertThat(statuses.get("group-missing").getState(), is(DeploymentState.unknown));
+		assertThat(simulator.getBoundServices("group-app42").contains("my-service"), is(true));
+		assertThat(simulator.getEnvironment("group-app42").get("SPRING_APPLICATION_JSON"), is("{\"foo\":\"bar\"}"));
+	}
+
+	@Test
+	public void setsNoEnvironmentForAppsWithoutProperties() {
+		CloudFoundryApiMetrics metrics = new CloudFoundryApiMetrics();
+		appDeployer = new CloudFoundryAppDeployer(properties, simulator.operations(), metrics);
+		Map<String, String> environment = new HashMap<>();
+		environment.put(AppDeployer.GROUP_PROPERTY_KEY, "group");
+
+		appDeployer.asyncDeploy(new AppDeploymentRequest(new AppDefinition("bare", Collections.emptyMap()),
+			new ByteArrayResource("bits".getBytes()), environment)).get();
+
+		assertThat(appDeployer.status("group-bare").getState(), is(DeploymentState.deployed));
+		assertThat(simulator.getEnvironment("group-bare").containsKey("SPRING_APPLICATION_JSON"), is(false));
+		assertThat(metrics.getCount("setEnvironment", "success"), is(0L));
+	}
+
+	@Test
+	public void deploysAWholeGroup() throws InterruptedException {
+		simulator.serviceInstance("config", "p-config-server");
+		properties.setServices(Collections.singleton("config"));
+		properties.setMaxConcurrentDeployments(4);
+		appDeployer = new CloudFoundryAppDeployer(properties, simulator.operations());
+		List<AppDeploymentRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			requests.add(request("app" + i));
+		}
+
+		List<String> ids = appDeployer.deployGroup(requests);
+
+		assertThat(ids.get(3), is("group-app3"));
+		long deadline = System.currentTimeMillis() + 10_000L;
+		while (appDeployer.status(ids).values().stream().anyMatch(status -> status.getState() != DeploymentState.deployed)
+			&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(50L);
+		}
+		assertThat(appDeployer.status(ids).values().stream().allMatch(status -> status.getState() == DeploymentState.deployed), is(true));
+		assertThat(simulator.getBoundServices("group-app19"), is(Collections.singleton("config")));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void refusesToDeployAGroupWithDeployedApps() {
+		appDeployer = new CloudFoundryAppDeployer(properties, simulator.operations());
+		appDeployer.asyncDeploy(request("app1")).get();
+
+		appDeployer.deployGroup(Arrays.asList(request("app0"), request("app1")));
+	}
+
+	@Test
+	public void skipsExistingBindingsWhenRedeploying() {
+		simulator.serviceInstance("config", "p-config-server").serviceInstance("db", "p-mysql");
+		properties.setServices(new HashSet<>(Arrays.asList("config", "db")));
+		appDeployer = new CloudFoundryAppDeployer(properties, simulator.operations());
+
+		appDeployer.asyncDeploy(request("app")).get();
+		appDeployer.asyncDeploy(request("app")).get();
+
+		assertThat(simulator.getBoundServices("group-app"), is(new HashSet<>(Arrays.asList("config", "db"))));
+	}
+
+	@Test
+	public void retriesBindingsThatFailWithServerErrors() {
+		simulator.serviceInstance("config", "p-config-server");
+		appDeployer = new CloudFoundryAppDeployer(properties, simulator.operations());
+		appDeployer.asyncDeploy(request("app")).get();
+		CloudFoundryApiMetrics metrics = new CloudFoundryApiMetrics();
+		ServiceBinder binder = new ServiceBinder(simulator.operations(), new ApiCallDecorator(metrics), 4, 2, 20, 1L);
+
+		simulator.errorRate(0.5);
+		binder.bind("group-app", Collections.singleton("config")).get();
+
+		assertThat(simulator.getBoundServices("group-app"), is(Collections.singleton("config")));
+		assertThat(metrics.getCount("bind", "success"), is(1L));
+	}
+
+	@Test
+	public void launchesTaskAndFollowsItsStatus() {
+		taskLauncher = new CloudFoundryTaskLauncher(simulator.client(), properties);
+
+		taskLauncher.asyncLaunch(request("task")).get();
+
+		assertThat(taskLauncher.asyncStatus("task").get().getState(), is(LaunchState.complete));
+		assertThat(simulator.getApplicationNames(), is(Collections.singleton("task")));
+	}
+
+	@Test
+	public void launchesAgainOnceTheApplicationWasDeletedOutOfBand() {
+		properties.setGuidCacheTtl(60_000L);
+		taskLauncher = new CloudFoundryTaskLauncher(simulator.client(), properties);
+		taskLauncher.asyncLaunch(request("task")).get();
+
+		simulator.deleteApplication("task");
+		try {
+			taskLauncher.asyncLaunch(request("task")).get();
+			fail("Expected the launch on the deleted application to fail");
+		}
+		catch (RuntimeException e) {
+			// expected
+		}
+		taskLauncher.asyncLaunch(request("task")).get();
+
+		assertThat(simulator.getApplicationNames(), is(Collections.singleton("task")));
+	}
+
+	@Test
+	public void redeploysPooledApplicationsDeletedOutOfBand() {
+		properties.setGuidCacheTtl(60_000L);
+		properties.setTaskApplicationPoolSize(2);
+		taskLauncher = new CloudFoundryTaskLauncher(simulator.client(), properties);
+		taskLauncher.asyncLaunch(request("task")).get();
+
+		simulator.deleteApplication("task");
+		taskLauncher.asyncLaunch(request("task")).get();
+
+		assertThat(simulator.getApplicationNames(), is(Collections.singleton("task")));
+	}
+
+	@Test
+	public void readsUnchangedArtifactsOnlyOnce() {
+		properties.setTaskApplicationPoolSize(2);
+		taskLauncher = new CloudFoundryTaskLauncher(simulator.client(), properties);
+		CountingResource artifact = new CountingResource("http://repo/task.jar");
+
+		for (int i = 0; i < 3; i++) {
+			taskLauncher.asyncLaunch(request("task", artifact)).get();
+		}
+
+		assertThat(artifact.opened.get(), is(1));
+	}
+
+	@Test
+	public void reusesDropletsWithoutReadingTheArtifactAgain() {
+		properties.setReuseDroplets(true);
+		taskLauncher = new CloudFoundryTaskLauncher(simulator.client(), properties);
+		CountingResource artifact = new CountingResource("http://repo/task.jar");
+
+		taskLauncher.asyncLaunch(request("task1", artifact)).get();
+		taskLauncher.asyncLaunch(request("task2", artifact)).get();
+
+		// digested once to look for a droplet, then read once more to upload it
+		assertThat(artifact.opened.get(), is(2));
+	}
+
+	@Test
+	public void servesTaskStatusesFromTheTracker() throws InterruptedException {
+		simulator.taskDuration(Duration.ofMinutes(10));
+		properties.setTaskStatusRefreshInterval(50L);
+		CloudFoundryApiMetrics metrics = new CloudFoundryApiMetrics();
+		taskLauncher = new CloudFoundryTaskLauncher(simulator.client(), properties, metrics);
+		for (int i = 0; i < 60; i++) {
+			taskLauncher.asyncLaunch(request("task" + i)).get();
+		}
+
+		// tasks are listed for 50 applications at a time, so a third list means a first refresh is over
+		long deadline = System.currentTimeMillis() + 10_000L;
+		while (metrics.getCount("listTasks", "success") < 3 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10L);
+		}
+		long lookups = metrics.getCount("status", "success");
+		for (int i = 0; i < 60; i++) {
+			assertThat(taskLauncher.status("task" + i).getState(), is(LaunchState.launching));
+		}
+		assertThat(metrics.getCount("status", "success"), is(lookups));
+	}
+
+	@Test
+	public void deploysThroughTheRateLimit() {
+		simulator.rateLimit(5);
+		properties.setApiRateLimit(4.0);
+		appDeployer = new CloudFoundryAppDeployer(properties, simulator.operations());
+		List<AppDeploymentRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			requests.add(request("app" + i));
+		}
+
+		// the first calls go through as a burst, above the rate Cloud Foundry accepts
+		Flux.fromIterable(requests)
+			.flatMap(appDeployer::asyncDeploy)
+			.after()
+			.get(Duration.ofSeconds(30));
+
+		assertThat(simulator.getRejectedCount() > 0, is(true));
+		assertThat(simulator.getApplicationNames().size(), is(6));
+		assertThat(appDeployer.status("group-app5").getState(), is(DeploymentState.deployed));
+	}
+
+	@Test
+	public void reportsAppsThatCrashOnceStaged() throws InterruptedException {
+		simulator.stagingTime(Duration.ofMillis(500)).crashRate(1.0);
+		appDeployer = new CloudFoundryAppDeployer(properties, simulator.operations());
+
+		appDeployer.asyncDeploy(request("app")).get();
+
+		assertThat(appDeployer.status("group-app").getState(), is(DeploymentState.deploying));
+		awaitState("group-app", DeploymentState.failed);
+	}
+
+	@Test
+	public void givesUpOnStatusesThatTakeTooLong() {
+		appDeployer = new CloudFoundryAppDeployer(properties, simulator.operations());
+		appDeployer.asyncDeploy(request("app")).get();
+		properties.setApiTimeout(100L);
+
+		simulator.latency(Duration.ofMillis(1000));
+		assertThat(appDeployer.status("group-app").getState(), is(DeploymentState.unknown));
+		assertThat(appDeployer.getStatusFailures(), is(1L));
+
+		simulator.latency(Duration.ZERO);
+		assertThat(appDeployer.status("group-app").getState(), is(DeploymentState.deployed));
+	}
+
+	private void awaitState(String id, DeploymentState state) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000L;
+		while (appDeployer.status(id).getState() != state && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50L);
+		}
+		assertThat(appDeployer.status(id).getState(), is(state));
+	}
+
+	private AppDeploymentRequest request(String name) {
+		return request(name, new ByteArrayResource("bits".getBytes()));
+	}
+
+	private AppDeploymentRequest request(String name, Resource artifact) {
+		Map<String, String> environment = new HashMap<>();
+		environment.put(AppDeployer.GROUP_PROPERTY_KEY, "group");
+		environment.put("organization", "org");
+		environment.put("space", "space");
+		return new AppDeploymentRequest(new AppDefinition(name, Collections.singletonMap("foo", "bar")), artifact,
+			environment);
+	}
+
+	/**
+	 * A remote artifact, which counts how many times it is read.
+	 */
+	private static class CountingResource extends AbstractResource {
+
+		private final URI uri;
+
+		private final AtomicInteger opened = new AtomicInteger();
+
+		private CountingResource(String uri) {
+			this.uri = URI.create(uri);
+		}
+
+		@Override
+		public URI getURI() {
+			return uri;
+		}
+
+		@Override
+		public long contentLength() {
+			return 4L;
+		}
+
+		@Override
+		public long lastModified() {
+			return 42L;
+		}
+
+		@Override
+		public String getDescription() {
+			return uri.toString();
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			opened.incrementAndGet();
+			return new ByteArrayInputStream("bits".getBytes());
+		}
+	}
+}
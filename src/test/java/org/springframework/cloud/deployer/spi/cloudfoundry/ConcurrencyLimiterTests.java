@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+/**
+ * Unit tests for {@link ConcurrencyLimiter}.
+ *
+ * @author agent
+ */
+public class ConcurrencyLimiterTests {
+
+	private final ConcurrencyLimiter limiter = new ConcurrencyLimiter(2);
+
+	private final List<MonoProcessor<String>> started = new ArrayList<>();
+
+	@Test
+	public void queuesCallsBeyondTheLimit() {
+		for (int i = 0; i < 3; i++) {
+			limiter.limit(this::call).subscribe();
+		}
+		assertEquals(2, started.size());
+		assertEquals(1, limiter.getWaiting());
+
+		started.get(0).onNext("done");
+
+		assertEquals(3, started.size());
+		assertEquals(0, limiter.getWaiting());
+	}
+
+	@Test
+	public void releasesTheSlotOfFailedCalls() {
+		for (int i = 0; i < 3; i++) {
+			limiter.limit(this::call)
+				.otherwise(e -> Mono.empty())
+				.subscribe();
+		}
+
+		started.get(1).onError(new IllegalStateException());
+
+		assertEquals(3, started.size());
+	}
+
+	@Test
+	public void releasesTheSlotOfCancelledCalls() {
+		Subscription first = subscribe(limiter.limit(this::call));
+		limiter.limit(this::call).subscribe();
+		limiter.limit(this::call).subscribe();
+		assertEquals(1, limiter.getWaiting());
+
+		first.cancel();
+		first.cancel();
+
+		assertEquals(3, started.size());
+		limiter.limit(this::call).subscribe();
+		assertEquals(3, started.size());
+		assertEquals(1, limiter.getWaiting());
+	}
+
+	@Test
+	public void neverStartsCallsCancelledWhileWaiting() {
+		limiter.limit(this::call).subscribe();
+		limiter.limit(this::call).subscribe();
+		Subscription waiting = subscribe(limiter.limit(this::call));
+
+		waiting.cancel();
+		started.get(0).onNext("done");
+
+		assertEquals(2, started.size());
+		assertEquals(0, limiter.getWaiting());
+		limiter.limit(this::call).subscribe();
+		assertEquals(3, started.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesToRunNothing() {
+		new ConcurrencyLimiter(0);
+	}
+
+	@Test
+	public void passesResultsThrough() {
+		Mono<String> result = limiter.limit(() -> Mono.just("ok"));
+
+		assertEquals("ok", result.get());
+		assertEquals("ok", result.get());
+	}
+
+	private static Subscription subscribe(Mono<String> mono) {
+		Subscription[] subscription = new Subscription[1];
+		mono.subscribe(new Subscriber<String>() {
+
+			@Override
+			public void onSubscribe(Subscription s) {
+				subscription[0] = s;
+				s.request(Long.MAX_VALUE);
+			}
+
+			@Override
+			public void onNext(String value) {
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+			}
+
+			@Override
+			public void onComplete() {
+			}
+		});
+		return subscription[0];
+	}
+
+	private Mono<String> call() {
+		MonoProcessor<String> call = MonoProcessor.create();
+		started.add(call);
+		return call;
+	}
+}
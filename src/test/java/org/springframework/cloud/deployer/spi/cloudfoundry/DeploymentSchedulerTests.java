@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+/**
+ * Unit tests for {@link DeploymentScheduler}.
+ *
+ * @author agent
+ */
+public class DeploymentSchedulerTests {
+
+	/**
+	 * Pipelines started so far, by name, in the order they were started.
+	 */
+	private final Map<String, MonoProcessor<Void>> started = new LinkedHashMap<>();
+
+	@Test
+	public void runsAtMostMaxInFlightPipelines() {
+		DeploymentScheduler scheduler = new DeploymentScheduler(2);
+		for (int i = 0; i < 5; i++) {
+			scheduler.submit("group" + i % 2, "app" + i, pipeline("app" + i));
+		}
+
+		assertEquals(2, started.size());
+		assertEquals(2, scheduler.getInFlight());
+		assertEquals(3, scheduler.getQueueDepth());
+
+		started.get("app0").onComplete();
+
+		assertEquals(3, started.size());
+		assertEquals(2, scheduler.getInFlight());
+		assertEquals(2, scheduler.getQueueDepth());
+	}
+
+	@Test
+	public void servesGroupsInTurnAndEachGroupInOrder() {
+		DeploymentScheduler scheduler = new DeploymentScheduler(1);
+		scheduler.submit("a", "a1", pipeline("a1"));
+		scheduler.submit("a", "a2", pipeline("a2"));
+		scheduler.submit("a", "a3", pipeline("a3"));
+		scheduler.submit("b", "b1", pipeline("b1"));
+
+		for (int i = 0; i < 3; i++) {
+			last().onComplete();
+		}
+
+		assertThat(new ArrayList<>(started.keySet()), contains("a1", "a2", "b1", "a3"));
+	}
+
+	@Test
+	public void releasesTheSlotOfFailedPipelines() {
+		DeploymentScheduler scheduler = new DeploymentScheduler(1);
+		scheduler.submit("group", "app0", pipeline("app0"));
+		scheduler.submit("group", "app1", pipeline("app1"));
+
+		started.get("app0").onError(new IllegalStateException("push failed"));
+
+		assertEquals(2, started.size());
+		assertEquals(1, scheduler.getInFlight());
+	}
+
+	@Test
+	public void releasesTheSlotOfPipelinesThatFailToStart() {
+		DeploymentScheduler scheduler = new DeploymentScheduler(1);
+		scheduler.submit("group", "app0", pipeline("app0"));
+		scheduler.submit("group", "app1", () -> {
+			throw new IllegalStateException("could not assemble");
+		});
+		scheduler.submit("group", "app2", () -> new Mono<Void>() {
+
+			@Override
+			public void subscribe(Subscriber<? super Void> subscriber) {
+				throw new IllegalStateException("could not subscribe");
+			}
+		});
+		scheduler.submit("group", "app3", pipeline("app3"));
+
+		started.get("app0").onComplete();
+
+		assertThat(new ArrayList<>(started.keySet()), contains("app0", "app3"));
+		assertEquals(1, scheduler.getInFlight());
+
+		started.get("app3").onComplete();
+
+		assertEquals(0, scheduler.getInFlight());
+	}
+
+	@Test
+	public void reservesIdsUntilTheirPipelineIsDone() {
+		DeploymentScheduler scheduler = new DeploymentScheduler(1);
+		scheduler.reserve(Collections.singletonList("app0"));
+		scheduler.submit("group", "app0", pipeline("app0"));
+
+		try {
+			scheduler.reserve(Arrays.asList("app1", "app0"));
+			fail("Expected app0 to be reserved already");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		scheduler.reserve(Collections.singletonList("app1"));
+		scheduler.cancel(Collections.singletonList("app1"));
+
+		started.get("app0").onComplete();
+
+		scheduler.reserve(Arrays.asList("app0", "app1"));
+	}
+
+	@Test
+	public void drainsPipelinesCompletingRightAwayWithoutRecursing() {
+		DeploymentScheduler scheduler = new DeploymentScheduler(1);
+		scheduler.submit("group", "app", pipeline("app"));
+		AtomicInteger completed = new AtomicInteger();
+		for (int i = 0; i < 100_000; i++) {
+			scheduler.submit("group" + i % 3, "app" + i,
+				() -> Mono.<Void>empty().doOnSuccess(v -> completed.incrementAndGet()));
+		}
+
+		started.get("app").onComplete();
+
+		assertEquals(100_000, completed.get());
+		assertEquals(0, scheduler.getInFlight());
+		assertEquals(0, scheduler.getQueueDepth());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesToRunNothing() {
+		new DeploymentScheduler(0);
+	}
+
+	private Supplier<Mono<Void>> pipeline(String name) {
+		return () -> {
+			MonoProcessor<Void> pipeline = MonoProcessor.create();
+			started.put(name, pipeline);
+			return pipeline;
+		};
+	}
+
+	private MonoProcessor<Void> last() {
+		List<MonoProcessor<Void>> pipelines = new ArrayList<>(started.values());
+		return pipelines.get(pipelines.size() - 1);
+	}
+}
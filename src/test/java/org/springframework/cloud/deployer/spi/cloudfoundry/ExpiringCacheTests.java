@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ExpiringCache}.
+ *
+ * @author agent
+ */
+public class ExpiringCacheTests {
+
+	private final AtomicLong now = new AtomicLong();
+
+	private final ExpiringCache<String, String> cache = new ExpiringCache<>(100L, 2, now::get);
+
+	@Test
+	public void entriesExpireAfterTimeToLive() {
+		cache.put("a", "1");
+		now.set(99L);
+		assertThat(cache.get("a"), is("1"));
+		now.set(100L);
+		assertThat(cache.get("a"), nullValue());
+	}
+
+	@Test
+	public void leastRecentlyUsedEntryIsEvicted() {
+		cache.put("a", "1");
+		cache.put("b", "2");
+		cache.get("a");
+		cache.put("c", "3");
+		assertThat(cache.get("b"), nullValue());
+		assertThat(cache.get("a"), is("1"));
+		assertThat(cache.get("c"), is("3"));
+	}
+
+	@Test
+	public void onlyEntriesReadSinceLastWriteAreHot() {
+		cache.put("a", "1");
+		cache.put("b", "2");
+		cache.get("b");
+		assertThat(cache.hotKeys(), contains("b"));
+		cache.put("b", "3");
+		assertThat(cache.hotKeys(), empty());
+	}
+
+	@Test
+	public void invalidatedEntriesAreGone() {
+		cache.put("a", "1");
+		cache.invalidate("a");
+		assertThat(cache.get("a"), nullValue());
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link HttpClientTuning}.
+ *
+ * @author agent
+ */
+public class HttpClientTuningTests {
+
+	private final CloudFoundryDeployerProperties properties = new CloudFoundryDeployerProperties();
+
+	@Test
+	public void leavesJvmDefaultsAlone() {
+		assertThat(HttpClientTuning.systemProperties(properties), is(Collections.<String, String>emptyMap()));
+	}
+
+	@Test
+	public void mapsKeepAliveOnlyWhenSet() {
+		properties.setHttpKeepAlive(false);
+
+		assertThat(HttpClientTuning.systemProperties(properties), is(Collections.singletonMap("http.keepAlive", "false")));
+	}
+
+	@Test
+	public void mapsSettingsToSystemProperties() {
+		properties.setHttpMaxConnections(50);
+		properties.setHttpConnectTimeout(2000L);
+		properties.setHttpReadTimeout(30_000L);
+
+		assertThat(HttpClientTuning.systemProperties(properties), hasEntry("http.maxConnections", "50"));
+		assertThat(HttpClientTuning.systemProperties(properties), hasEntry("sun.net.client.defaultConnectTimeout", "2000"));
+		assertThat(HttpClientTuning.systemProperties(properties), hasEntry("sun.net.client.defaultReadTimeout", "30000"));
+	}
+}
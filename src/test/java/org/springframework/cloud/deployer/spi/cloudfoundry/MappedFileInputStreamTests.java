@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link MappedFileInputStream}.
+ *
+ * @author agent
+ */
+public class MappedFileInputStreamTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void readsWholeFileAcrossChunks() throws Exception {
+		byte[] content = new byte[10_000];
+		new Random(42).nextBytes(content);
+		Path file = folder.newFile().toPath();
+		Files.write(file, content);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = new MappedFileInputStream(file, 333)) {
+			out.write(in.read());
+			assertEquals(500L, in.skip(500L));
+			out.write(content, 1, 500);
+			byte[] buffer = new byte[1000];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		}
+		assertArrayEquals(content, out.toByteArray());
+	}
+
+	@Test
+	public void emptyFileIsImmediatelyExhausted() throws Exception {
+		Path file = folder.newFile().toPath();
+		try (InputStream in = new MappedFileInputStream(file, 333)) {
+			assertEquals(-1, in.read());
+			assertEquals(0, in.available());
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.core.io.FileSystemResource;
+
+/**
+ * Unit tests for {@link ProgressInputStream}.
+ *
+ * @author agent
+ */
+public class ProgressInputStreamTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void countsEveryByteRead() throws Exception {
+		AtomicLong reported = new AtomicLong();
+		try (ProgressInputStream in = new ProgressInputStream(new ByteArrayInputStream(new byte[1000]), "app", 1000L,
+				reported::addAndGet)) {
+			in.read();
+			assertEquals(99L, in.skip(99L));
+			assertEquals(400, in.read(new byte[400]));
+			assertEquals(500L, in.getCount());
+			while (in.read(new byte[128]) != -1) {
+				// reading up to the end
+			}
+			assertEquals(1000L, in.getCount());
+		}
+		assertEquals(1000L, reported.get());
+	}
+
+	@Test
+	public void knowsTheLengthOfFiles() throws Exception {
+		Path file = folder.newFile().toPath();
+		Files.write(file, new byte[1234]);
+
+		try (ProgressInputStream in = UploadStreams.open(new FileSystemResource(file.toFile()), 100, "app", n -> {})) {
+			assertEquals(1234L, in.getTotal());
+		}
+	}
+
+	@Test
+	public void opensAnewEachTime() throws Exception {
+		Path file = folder.newFile().toPath();
+		Files.write(file, new byte[300]);
+		FileSystemResource resource = new FileSystemResource(file.toFile());
+
+		for (int attempt = 0; attempt < 2; attempt++) {
+			try (InputStream in = UploadStreams.open(resource, 100, "app", n -> {})) {
+				assertEquals(300, drain(in));
+			}
+		}
+	}
+
+	private static int drain(InputStream in) throws Exception {
+		int size = 0;
+		int read;
+		byte[] buffer = new byte[64];
+		while ((read = in.read(buffer)) != -1) {
+			size += read;
+		}
+		return size;
+	}
+}
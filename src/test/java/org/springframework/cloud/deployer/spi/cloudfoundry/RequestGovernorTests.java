@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+/**
+ * Unit tests for {@link RequestGovernor}.
+ *
+ * @author agent
+ */
+public class RequestGovernorTests {
+
+	private long now = 1_000_000_000L;
+
+	@Test
+	public void letsBurstsThroughThenPacesCalls() {
+		RequestGovernor governor = new RequestGovernor(10.0, 2, 3, () -> now);
+
+		assertEquals(0L, governor.reserve());
+		assertEquals(0L, governor.reserve());
+		assertEquals(100L, governor.reserve());
+		assertEquals(200L, governor.reserve());
+
+		now += 400L;
+		assertEquals(0L, governor.reserve());
+	}
+
+	@Test
+	public void letsEverythingThroughWithoutALimit() {
+		RequestGovernor governor = new RequestGovernor(0.0, 1, 3, () -> now);
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals(0L, governor.reserve());
+		}
+	}
+
+	@Test
+	public void holdsBackCallsForRetryAfter() {
+		RequestGovernor governor = new RequestGovernor(0.0, 1, 3, () -> now);
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("Retry-After", "3");
+
+		governor.onThrottled(tooManyRequests(headers));
+
+		assertEquals(3000L, governor.reserve());
+		now += 1000L;
+		assertEquals(2000L, governor.reserve());
+	}
+
+	@Test
+	public void holdsBackCallsForOneSecondWithoutAHint() {
+		RequestGovernor governor = new RequestGovernor(0.0, 1, 3, () -> now);
+
+		governor.onThrottled(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+		assertEquals(1000L, governor.reserve());
+	}
+
+	@Test
+	public void spreadsRemainingCallsUntilTheWindowResets() {
+		RequestGovernor governor = new RequestGovernor(0.0, 1, 3, () -> now);
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("Retry-After", "0");
+		headers.set("X-RateLimit-Remaining", "20");
+		headers.set("X-RateLimit-Reset", String.valueOf(now / 1000L + 10L));
+
+		governor.onThrottled(tooManyRequests(headers));
+		assertEquals(2.0, governor.getRate(), 0.001);
+
+		now += 10_000L;
+		governor.reserve();
+		assertEquals(0.0, governor.getRate(), 0.001);
+	}
+
+	@Test
+	public void queuesThrottledCallsAgain() {
+		RequestGovernor governor = new RequestGovernor(0.0, 1, 3, () -> now);
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("Retry-After", "0");
+		AtomicInteger attempts = new AtomicInteger();
+
+		String result = governor.govern(Mono.defer(() -> attempts.incrementAndGet() < 3
+			? Mono.<String>error(tooManyRequests(headers)) : Mono.just("ok"))).get();
+
+		assertEquals("ok", result);
+		assertEquals(3, attempts.get());
+		assertEquals(2L, governor.getThrottled());
+	}
+
+	@Test
+	public void givesUpAfterMaxAttempts() {
+		RequestGovernor governor = new RequestGovernor(0.0, 1, 2, () -> now);
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("Retry-After", "0");
+		AtomicInteger attempts = new AtomicInteger();
+
+		try {
+			governor.govern(Mono.defer(() -> {
+				attempts.incrementAndGet();
+				return Mono.<String>error(tooManyRequests(headers));
+			})).get();
+			fail("Expected the call to fail");
+		}
+		catch (HttpClientErrorException e) {
+			assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatusCode());
+		}
+		assertEquals(2, attempts.get());
+	}
+
+	@Test
+	public void onlyQueuesThrottledCallsAgain() {
+		assertTrue(RequestGovernor.isThrottled(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)));
+		assertFalse(RequestGovernor.isThrottled(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)));
+		assertFalse(RequestGovernor.isThrottled(new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+	}
+
+	private static HttpClientErrorException tooManyRequests(HttpHeaders headers) {
+		return new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers, new byte[0],
+			StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.cloudfoundry.operations.CloudFoundryOperations;
+import org.cloudfoundry.operations.services.BindServiceInstanceRequest;
+import org.cloudfoundry.operations.services.Services;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+/**
+ * Unit tests for {@link ServiceBinder}, against a mocked {@link CloudFoundryOperations}.
+ *
+ * @author agent
+ */
+public class ServiceBinderTests {
+
+	private final CloudFoundryOperations operations = mock(CloudFoundryOperations.class);
+
+	private final Services services = mock(Services.class);
+
+	private final ServiceBinder binder = new ServiceBinder(operations, new ApiCallDecorator(new CloudFoundryApiMetrics()), 4, 2, 3, 1L);
+
+	@Before
+	public void setUp() {
+		when(operations.services()).thenReturn(services);
+		when(services.listInstances()).thenReturn(Flux.empty());
+	}
+
+	@Test
+	public void considersBindingsFoundOnRetryAsDone() {
+		when(services.bind(any(BindServiceInstanceRequest.class))).thenReturn(
+			Mono.error(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)),
+			Mono.error(alreadyBound()));
+
+		binder.bind("app", Collections.singleton("db")).get();
+
+		verify(services, times(2)).bind(any(BindServiceInstanceRequest.class));
+	}
+
+	@Test
+	public void failsBindingsFoundOnFirstAttempt() {
+		when(services.bind(any(BindServiceInstanceRequest.class))).thenReturn(Mono.error(alreadyBound()));
+
+		try {
+			binder.bind("app", Collections.singleton("db")).get();
+			fail("Expected the binding to fail");
+		}
+		catch (HttpClientErrorException e) {
+			assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+		}
+		verify(services, times(1)).bind(any(BindServiceInstanceRequest.class));
+	}
+
+	private static HttpClientErrorException alreadyBound() {
+		return new HttpClientErrorException(HttpStatus.BAD_REQUEST, "The app is already bound to the service.");
+	}
+}
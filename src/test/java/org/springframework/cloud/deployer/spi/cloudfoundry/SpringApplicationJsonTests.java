@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SpringApplicationJson}.
+ *
+ * @author agent
+ */
+public class SpringApplicationJsonTests {
+
+	@Test
+	public void writesKeysInOrder() {
+		Map<String, String> properties = new LinkedHashMap<>();
+		properties.put("server.port", "8080");
+		properties.put("logging.level.root", "INFO");
+		properties.put("app.message", "\"quoted\"");
+
+		assertEquals("{\"app.message\":\"\\\"quoted\\\"\",\"logging.level.root\":\"INFO\",\"server.port\":\"8080\"}",
+			SpringApplicationJson.serialize(properties));
+	}
+
+	@Test
+	public void setsNothingWithoutProperties() {
+		assertNull(SpringApplicationJson.serialize(Collections.emptyMap()));
+		assertNull(SpringApplicationJson.serialize(null));
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Unit tests for {@link StatusWatcher}.
+ *
+ * @author agent
+ */
+public class StatusWatcherTests {
+
+	private final Map<String, String> states = new ConcurrentHashMap<>();
+
+	private final AtomicInteger lookups = new AtomicInteger();
+
+	private final AtomicInteger lastLookupSize = new AtomicInteger();
+
+	private final StatusWatcher<String> watcher = new StatusWatcher<>(this::lookup, state -> state,
+		"done"::equals, 3_600_000L, "test-status-watcher");
+
+	@After
+	public void tearDown() {
+		watcher.shutdown();
+	}
+
+	@Test
+	public void emitsOnlyChanges() {
+		states.put("a", "starting");
+		Recorder a = watch("a");
+
+		watcher.poll();
+		watcher.poll();
+		states.put("a", "running");
+		watcher.poll();
+
+		assertThat(a.values, contains("starting", "running"));
+		assertThat(a.completed, is(false));
+	}
+
+	@Test
+	public void sharesOneLookupBetweenAllWatches() {
+		for (int i = 0; i < 500; i++) {
+			states.put("app" + i, "running");
+			watch("app" + i);
+		}
+		watcher.poll();
+
+		// at most one more lookup, made by the polling thread when the first watch started
+		assertThat(lookups.get(), lessThanOrEqualTo(2));
+		assertThat(lastLookupSize.get(), is(500));
+		assertThat(watcher.getWatchCount(), is(500));
+	}
+
+	@Test
+	public void completesOnTerminalState() {
+		states.put("a", "running");
+		Recorder a = watch("a");
+		watcher.poll();
+
+		states.put("a", "done");
+		watcher.poll();
+
+		assertThat(a.values, contains("running", "done"));
+		assertThat(a.completed, is(true));
+		assertThat(watcher.getWatchCount(), is(0));
+	}
+
+	@Test
+	public void stopsWatchingOnCancel() {
+		states.put("a", "running");
+		Recorder a = watch("a");
+
+		a.subscription.cancel();
+
+		assertThat(watcher.getWatchCount(), is(0));
+	}
+
+	private Map<String, String> lookup(Collection<String> ids) {
+		lookups.incrementAndGet();
+		lastLookupSize.set(ids.size());
+		Map<String, String> result = new ConcurrentHashMap<>();
+		ids.forEach(id -> result.put(id, states.get(id)));
+		return result;
+	}
+
+	private Recorder watch(String id) {
+		Recorder recorder = new Recorder();
+		watcher.watch(id).subscribe(recorder);
+		return recorder;
+	}
+
+	private static class Recorder implements Subscriber<String> {
+
+		private final List<String> values = new ArrayList<>();
+
+		private volatile Subscription subscription;
+
+		private volatile boolean completed;
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(Long.MAX_VALUE);
+		}
+
+		@Override
+		public synchronized void onNext(String value) {
+			values.add(value);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+	}
+}
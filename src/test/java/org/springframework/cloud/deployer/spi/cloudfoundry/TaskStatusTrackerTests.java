@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.time.Duration;
+
+import org.cloudfoundry.client.CloudFoundryClient;
+import org.cloudfoundry.client.v3.Relationship;
+import org.cloudfoundry.client.v3.applications.CreateApplicationRequest;
+import org.cloudfoundry.client.v3.tasks.CreateTaskRequest;
+import org.cloudfoundry.client.v3.tasks.Task;
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.cloud.deployer.spi.task.LaunchState;
+import org.springframework.cloud.deployer.spi.task.TaskStatus;
+
+/**
+ * Unit tests for {@link TaskStatusTracker}, against a {@link CloudControllerSimulator}.
+ *
+ * @author agent
+ */
+public class TaskStatusTrackerTests {
+
+	private final CloudControllerSimulator simulator = new CloudControllerSimulator();
+
+	private final CloudFoundryClient client = simulator.client();
+
+	private final CloudFoundryApiMetrics metrics = new CloudFoundryApiMetrics();
+
+	private TaskStatusTracker tracker;
+
+	@After
+	public void tearDown() {
+		if (tracker != null) {
+			tracker.shutdown();
+		}
+	}
+
+	@Test
+	public void onlyListsTasksUntilTheLatestOneOfEachApplication() {
+		simulator.taskDuration(Duration.ofHours(1));
+		String applicationId = createApplication("task");
+		String latest = null;
+		for (int i = 0; i < 120; i++) {
+			latest = createTask(applicationId);
+		}
+		tracker = tracker(60_000L);
+
+		tracker.track("task", applicationId);
+		tracker.refresh();
+
+		assertThat(tracker.get("task").getTaskId(), is(latest));
+		assertThat(metrics.getCount("listTasks", "success"), is(1L));
+	}
+
+	@Test
+	public void expiresFinishedStatusesAfterAnInterval() throws InterruptedException {
+		String applicationId = createApplication("task");
+		createTask(applicationId);
+		tracker = tracker(50L);
+
+		tracker.track("task", applicationId);
+		tracker.refresh();
+		assertThat(tracker.get("task").getState(), is(LaunchState.complete));
+
+		Thread.sleep(100L);
+		assertThat(tracker.get("task"), is(nullValue()));
+	}
+
+	private TaskStatusTracker tracker(long interval) {
+		return new TaskStatusTracker(client, new ApiCallDecorator(metrics), TaskStatusTrackerTests::status,
+			status -> status.getState() == LaunchState.complete, interval, 5000L);
+	}
+
+	private String createApplication(String name) {
+		return client.applicationsV3()
+			.create(CreateApplicationRequest.builder()
+				.name(name)
+				.relationship("space", Relationship.builder()
+					.id("space-id")
+					.build())
+				.build())
+			.get()
+			.getId();
+	}
+
+	private String createTask(String applicationId) {
+		return client.tasks()
+			.create(CreateTaskRequest.builder()
+				.applicationId(applicationId)
+				.name("timestamp")
+				.command("java -jar")
+				.build())
+			.get()
+			.getId();
+	}
+
+	private static TaskStatus status(Task task) {
+		return new TaskStatus(task.getId(),
+			Task.SUCCEEDED_STATE.equals(task.getState()) ? LaunchState.complete : LaunchState.running, null);
+	}
+}
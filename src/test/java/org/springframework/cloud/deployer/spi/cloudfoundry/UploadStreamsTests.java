@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+
+/**
+ * Unit tests for {@link UploadStreams}.
+ *
+ * @author agent
+ */
+public class UploadStreamsTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void streamsFilesChunkByChunk() throws Exception {
+		byte[] content = new byte[10_000];
+		new Random(42).nextBytes(content);
+		File file = folder.newFile();
+		Files.write(file.toPath(), content);
+		FileSystemResource resource = new FileSystemResource(file) {
+
+			@Override
+			public InputStream getInputStream() throws IOException {
+				throw new AssertionError("Files should be mapped, not read through their stream");
+			}
+		};
+		AtomicLong read = new AtomicLong();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ProgressInputStream in = UploadStreams.open(resource, 1000, "app", read::addAndGet)) {
+			assertEquals(10_000L, in.getTotal());
+			byte[] buffer = new byte[100];
+			assertEquals(100, in.read(buffer));
+			// nothing is read ahead of the caller
+			assertEquals(100L, read.get());
+			out.write(buffer);
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				out.write(buffer, 0, count);
+			}
+		}
+		assertArrayEquals(content, out.toByteArray());
+		assertEquals(10_000L, read.get());
+	}
+
+	@Test
+	public void readsOtherResourcesThroughTheirStream() throws Exception {
+		ByteArrayResource resource = new ByteArrayResource("bits".getBytes());
+
+		try (ProgressInputStream in = UploadStreams.open(resource, 1000, "app", bytes -> { })) {
+			assertTrue(in.getTotal() < 0);
+			assertEquals('b', in.read());
+		}
+	}
+
+	@Test
+	public void readsResourcesWithoutFileThroughTheirStream() throws Exception {
+		ByteArrayResource resource = new ByteArrayResource("bits".getBytes()) {
+
+			@Override
+			public File getFile() {
+				return null;
+			}
+		};
+
+		try (ProgressInputStream in = UploadStreams.open(resource, 1000, "app", bytes -> { })) {
+			assertEquals('b', in.read());
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.deployer.spi.cloudfoundry;
+
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link WarmApplicationPool}.
+ *
+ * @author agent
+ */
+public class WarmApplicationPoolTests {
+
+	private final AtomicLong now = new AtomicLong();
+
+	private final WarmApplicationPool pool = new WarmApplicationPool(2, 1000L, now::get);
+
+	@Test
+	public void evictsLeastRecentlyUsedWhenFull() {
+		assertThat(pool.add("a", "app-a").isEmpty(), is(true));
+		assertThat(pool.add("b", "app-b").isEmpty(), is(true));
+		assertThat(pool.acquire("a"), is("app-a"));
+		assertThat(pool.add("c", "app-c"), hasEntry("b", "app-b"));
+		assertThat(pool.acquire("b"), nullValue());
+	}
+
+	@Test
+	public void evictsIdleApplications() {
+		pool.add("a", "app-a");
+		now.set(500L);
+		pool.add("b", "app-b");
+		now.set(1200L);
+		assertThat(pool.evictIdle(), is(Collections.singletonMap("a", "app-a")));
+		assertThat(pool.acquire("b"), is("app-b"));
+		now.set(2100L);
+		assertThat(pool.evictIdle().isEmpty(), is(true));
+	}
+}